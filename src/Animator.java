@@ -0,0 +1,114 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+// One frame clock for every UI animation. Each tick advances all running animations, merges the areas they
+// touched into one repaint per window, and the clock stops as soon as nothing is animating.
+// Must be used on the EDT.
+public class Animator {
+    private static final int FRAME_MILLIS = 16;
+    private static final Animator SHARED = new Animator();
+    private static final Map<Color, Color[]> ALPHA_RAMPS = new HashMap<>();
+
+    private final List<Fade> fades = new ArrayList<>();
+    private final Timer clock = new Timer(FRAME_MILLIS, e -> tick());
+
+    public static Animator shared() {
+        return SHARED;
+    }
+
+    // The 256 alpha variants of a colour, built once so animations never allocate colours per frame
+    public static Color[] alphaRamp(Color base) {
+        Color[] ramp = ALPHA_RAMPS.get(base);
+        if (ramp == null) {
+            ramp = new Color[256];
+            for (int alpha = 0; alpha < 256; alpha++) {
+                ramp[alpha] = new Color(base.getRed(), base.getGreen(), base.getBlue(), alpha);
+            }
+            ALPHA_RAMPS.put(base, ramp);
+        }
+        return ramp;
+    }
+
+    // Fades from alpha 0 to 255 over the given time, calling setAlpha with each new value. A fade already running
+    // on the component is replaced, so two fades never fight over its alpha.
+    public void fadeIn(JComponent component, long durationMillis, IntConsumer setAlpha) {
+        fades.removeIf(fade -> fade.component == component);
+        fades.add(new Fade(component, durationMillis, setAlpha));
+        setAlpha.accept(0);
+        if (!clock.isRunning()) {
+            clock.start();
+        }
+    }
+
+    public boolean isRunning() {
+        return clock.isRunning();
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        Map<JRootPane, Rectangle> dirty = new HashMap<>();
+        Iterator<Fade> it = fades.iterator();
+        while (it.hasNext()) {
+            Fade fade = it.next();
+            boolean finished = fade.advance(now);
+            if (fade.changed) {
+                markDirty(dirty, fade.component);
+            }
+            if (finished) {
+                it.remove();
+            }
+        }
+        for (Map.Entry<JRootPane, Rectangle> entry : dirty.entrySet()) {
+            Rectangle r = entry.getValue();
+            entry.getKey().repaint(r.x, r.y, r.width, r.height);
+        }
+        if (fades.isEmpty()) {
+            clock.stop();
+        }
+    }
+
+    private static void markDirty(Map<JRootPane, Rectangle> dirty, JComponent component) {
+        JRootPane root = component.getRootPane();
+        if (root == null || !component.isShowing()) {
+            return;
+        }
+        Rectangle area = SwingUtilities.convertRectangle(component, new Rectangle(0, 0, component.getWidth(), component.getHeight()), root);
+        Rectangle union = dirty.get(root);
+        if (union == null) {
+            dirty.put(root, area);
+        } else {
+            union.add(area);
+        }
+    }
+
+    private static class Fade {
+        final JComponent component;
+        final long start = System.nanoTime();
+        final long durationNanos;
+        final IntConsumer setAlpha;
+        int alpha;
+        boolean changed;
+
+        Fade(JComponent component, long durationMillis, IntConsumer setAlpha) {
+            this.component = component;
+            this.durationNanos = Math.max(1, durationMillis) * 1_000_000L;
+            this.setAlpha = setAlpha;
+        }
+
+        boolean advance(long now) {
+            int next = (int) Math.min(255, (now - start) * 255 / durationNanos);
+            changed = next != alpha;
+            if (changed) {
+                alpha = next;
+                setAlpha.accept(next);
+            }
+            return next == 255;
+        }
+    }
+}
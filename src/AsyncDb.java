@@ -0,0 +1,136 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+// Runs database work on SwingWorker threads and delivers the result back on the EDT.
+// Every task has a key: submitting a key that is still running joins the running task instead of
+// queueing a duplicate query. A joined task never runs, so a write's key has to name everything it writes (the
+// new text, the files), not just the place. All methods must be called on the EDT.
+public class AsyncDb {
+
+    public interface Task<T> {
+        T run() throws Exception;
+    }
+
+    public interface Callback<T> {
+        void accept(T value);
+    }
+
+    private final Map<String, Worker<?>> inFlight = new HashMap<>();
+    private final JComponent busyIndicator;
+
+    // busyIndicator (usually an indeterminate JProgressBar) is shown while any task runs; may be null
+    public AsyncDb(JComponent busyIndicator) {
+        this.busyIndicator = busyIndicator;
+        if (busyIndicator != null) {
+            busyIndicator.setVisible(false);
+        }
+    }
+
+    // Starts the task unless one with the same key is already running, in which case the callbacks are
+    // attached to that one and this task is dropped
+    public <T> void submit(String key, Task<T> task, Callback<T> onSuccess, Callback<Exception> onError) {
+        @SuppressWarnings("unchecked")
+        Worker<T> running = (Worker<T>) inFlight.get(key);
+        if (running != null && !running.isDone()) {
+            running.addCallbacks(onSuccess, onError);
+            return;
+        }
+        Worker<T> worker = new Worker<>(key, task);
+        worker.addCallbacks(onSuccess, onError);
+        inFlight.put(key, worker);
+        updateBusy();
+        worker.execute();
+    }
+
+    // Cancels any running task with this key and starts a fresh one, for loads where only the newest result matters
+    public <T> void submitLatest(String key, Task<T> task, Callback<T> onSuccess, Callback<Exception> onError) {
+        cancel(key);
+        submit(key, task, onSuccess, onError);
+    }
+
+    public boolean isRunning(String key) {
+        Worker<?> worker = inFlight.get(key);
+        return worker != null && !worker.isDone();
+    }
+
+    // Drops the result of any running task with this key; its callbacks won't be called. The task itself runs to
+    // the end: interrupting it would close LogPlaceStore's file channel for good (ClosedByInterruptException).
+    public void cancel(String key) {
+        Worker<?> worker = inFlight.remove(key);
+        if (worker != null) {
+            worker.cancel(false);
+            updateBusy();
+        }
+    }
+
+    private void finished(Worker<?> worker) {
+        if (inFlight.get(worker.key) == worker) {
+            inFlight.remove(worker.key);
+        }
+        updateBusy();
+    }
+
+    private void updateBusy() {
+        if (busyIndicator != null) {
+            busyIndicator.setVisible(!inFlight.isEmpty());
+        }
+    }
+
+    private class Worker<T> extends SwingWorker<T, Void> {
+        private final String key;
+        private final Task<T> task;
+        private final List<Callback<T>> successCallbacks = new ArrayList<>();
+        private final List<Callback<Exception>> errorCallbacks = new ArrayList<>();
+
+        Worker(String key, Task<T> task) {
+            this.key = key;
+            this.task = task;
+        }
+
+        void addCallbacks(Callback<T> onSuccess, Callback<Exception> onError) {
+            if (onSuccess != null) {
+                successCallbacks.add(onSuccess);
+            }
+            if (onError != null) {
+                errorCallbacks.add(onError);
+            }
+        }
+
+        @Override
+        protected T doInBackground() throws Exception {
+            return task.run();
+        }
+
+        @Override
+        protected void done() {
+            finished(this);
+            if (isCancelled()) {
+                return;
+            }
+            T result;
+            try {
+                result = get();
+            } catch (CancellationException | InterruptedException e) {
+                return;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                Exception error = cause instanceof Exception ? (Exception) cause : e;
+                if (errorCallbacks.isEmpty()) {
+                    error.printStackTrace();
+                }
+                for (Callback<Exception> callback : errorCallbacks) {
+                    callback.accept(error);
+                }
+                return;
+            }
+            for (Callback<T> callback : successCallbacks) {
+                callback.accept(result);
+            }
+        }
+    }
+}
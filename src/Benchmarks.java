@@ -0,0 +1,1013 @@
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ref.Reference;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Benchmarks for the data-access and rendering hot paths, runnable without a build tool or a database server:
+//
+//   java Benchmarks [out=benchmarks.json] [rows=1000,100000,1000000] [suites=data,heap,search,paint,startup,photo,booklet,jdbc,http,geo,contention]
+//       [clients=1000] [points=1000000] [bookletRows=100000] [threads=8]
+//
+// Data benchmarks run the real PlaceRepository code against a throwaway embedded LogPlaceStore; paint
+// benchmarks render the home screen to an offscreen image. The jdbc suite needs the database in db.properties
+// and is skipped when it can't be reached. The http suite is a local load test of PlaceHttpServer: `clients`
+// concurrent requests at a time against an embedded store. The geo suite loads `points` random places into a
+// GeoIndex and times nearest-k and radius queries. The heap suite loads the same export into DefaultTableModel
+// rows and into a CompactCatalogue and reports the heap each keeps (run it with -Xmx2g for a million rows). The
+// search suite builds a SearchIndex over `rows` places with a varied vocabulary and times prefix (still typing),
+// fuzzy (one typo) and ranked multi-word queries. The startup suite needs a display: it starts the app in a fresh
+// JVM per iteration and times the first frame, then switches screens in this JVM, all over an embedded store. The
+// photo suite attaches generated photos to a throwaway PhotoStore and paints a screenful of thumbnail cells. The
+// booklet suite times BookletGenerator over `bookletRows` places: a full run and incremental runs. The contention
+// suite has `threads` threads edit and delete the same few places of an embedded store through stale copies, and
+// fails if any write is lost or a conflict comes back without the current place. Every case is warmed up (bench.warmup iterations)
+// and then timed (bench.iterations); the results are printed and written as JSON so runs can be compared.
+public class Benchmarks {
+
+    interface Body {
+        void run() throws Exception;
+    }
+
+    static class Result {
+        final String name;
+        final Map<String, Object> params;
+        final int opsPerIteration;
+        final long[] nanosPerOp;
+
+        Result(String name, Map<String, Object> params, int opsPerIteration, long[] nanosPerOp) {
+            this.name = name;
+            this.params = params;
+            this.opsPerIteration = opsPerIteration;
+            this.nanosPerOp = nanosPerOp;
+        }
+
+        long percentile(double p) {
+            long[] sorted = nanosPerOp.clone();
+            Arrays.sort(sorted);
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+        }
+
+        double mean() {
+            return Arrays.stream(nanosPerOp).average().orElse(0);
+        }
+    }
+
+    private final int warmup = DatabaseConnection.getInt("bench.warmup", 5);
+    private final int iterations = DatabaseConnection.getInt("bench.iterations", 10);
+    private final List<Result> results = new ArrayList<>();
+
+    // Times `ops` operations per iteration; setup runs before each iteration and isn't timed
+    Result measure(String name, Map<String, Object> params, int ops, Body setup, Body body) throws Exception {
+        long[] nanosPerOp = new long[iterations];
+        for (int i = -warmup; i < iterations; i++) {
+            if (setup != null) {
+                setup.run();
+            }
+            long start = System.nanoTime();
+            body.run();
+            long elapsed = System.nanoTime() - start;
+            if (i >= 0) {
+                nanosPerOp[i] = elapsed / ops;
+            }
+        }
+        Result result = new Result(name, params, ops, nanosPerOp);
+        results.add(result);
+        System.out.printf("%-36s %-28s mean %,12.0f ns/op   p50 %,12d   p99 %,12d%n",
+                name, params, result.mean(), result.percentile(0.5), result.percentile(0.99));
+        return result;
+    }
+
+    Result measure(String name, Map<String, Object> params, Body body) throws Exception {
+        return measure(name, params, 1, null, body);
+    }
+
+    // For something that only happens once per run, like building a screen
+    Result measureOnce(String name, Map<String, Object> params, Body body) throws Exception {
+        long start = System.nanoTime();
+        body.run();
+        Result result = new Result(name, params, 1, new long[]{System.nanoTime() - start});
+        results.add(result);
+        System.out.printf("%-36s %-28s once %,12d ns%n", name, params, result.nanosPerOp[0]);
+        return result;
+    }
+
+    static Map<String, Object> params(Object... keysAndValues) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            params.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return params;
+    }
+
+    // A fresh embedded store in a temporary file, filled with `rows` places spread over 50 cities
+    static LogPlaceStore populatedStore(int rows) throws Exception {
+        return populatedStore(tempStoreFile(), rows);
+    }
+
+    static Path tempStoreFile() throws IOException {
+        Path file = Files.createTempFile("bench-places", ".log");
+        file.toFile().deleteOnExit();
+        Files.delete(file);
+        return file;
+    }
+
+    static LogPlaceStore populatedStore(Path file, int rows) throws Exception {
+        LogPlaceStore store = new LogPlaceStore(file, false);
+        List<String[]> chunk = new ArrayList<>(10000);
+        for (int i = 0; i < rows; i++) {
+            chunk.add(sampleRow(i));
+            if (chunk.size() == 10000) {
+                store.insertAll(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            store.insertAll(chunk);
+        }
+        return store;
+    }
+
+    static String[] sampleRow(int i) {
+        return new String[]{"Place " + i, "City " + (i % 50),
+                "A sample description for place " + i + ", long enough to look like the real thing in a table cell."};
+    }
+
+    private void dataSuite(int rows) throws Exception {
+        LogPlaceStore store = populatedStore(rows);
+        Map<String, Object> size = params("rows", rows);
+        int pageSize = 200;
+
+        // What Table.loadTableData triggers: the row count, the first page and its description previews
+        PlaceRepository[] cold = new PlaceRepository[1];
+        Body loadTable = () -> {
+            PlaceRepository repository = cold[0];
+            repository.count(null);
+            List<Place> page = repository.pageAfter(Integer.MIN_VALUE, pageSize, null);
+            repository.descriptionPreviews(page.stream().mapToInt(Place::getId).toArray(), PlaceTableModel.PREVIEW_CHARS + 1);
+        };
+        measure("loadTableData (cold cache)", size, 1, () -> cold[0] = new PlaceRepository(store, 32 * 1024 * 1024), loadTable);
+        cold[0] = new PlaceRepository(store, 32 * 1024 * 1024);
+        measure("loadTableData (warm cache)", size, loadTable);
+
+        // Scrolling: ten consecutive keyset pages
+        measure("scroll 10 pages (cold cache)", size, 10, () -> cold[0] = new PlaceRepository(store, 32 * 1024 * 1024), () -> {
+            int after = Integer.MIN_VALUE;
+            for (int p = 0; p < 10; p++) {
+                List<Place> page = cold[0].pageAfter(after, pageSize, null);
+                if (page.isEmpty()) {
+                    break;
+                }
+                after = page.get(page.size() - 1).getId();
+            }
+        });
+
+        measure("city facets + city page", size, 1, () -> cold[0] = new PlaceRepository(store, 32 * 1024 * 1024), () -> {
+            cold[0].cityCounts();
+            cold[0].count("City 7");
+            cold[0].pageAfter(Integer.MIN_VALUE, pageSize, "City 7");
+        });
+
+        measure("loadLatestPlace (cold cache)", size, 1, () -> cold[0] = new PlaceRepository(store, 32 * 1024 * 1024),
+                () -> cold[0].latest());
+
+        // Writes: each iteration adds 100 places, which the next setup deletes again, so the size stays put
+        int batch = 100;
+        PlaceRepository repository = new PlaceRepository(store, 32 * 1024 * 1024);
+        List<Place> added = new ArrayList<>();
+        Body removeAdded = () -> {
+            for (Place place : added) {
+                store.delete(store.find(place.getId()));
+            }
+            added.clear();
+        };
+        measure("addPlace (single inserts)", params("rows", rows, "batch", batch), batch, removeAdded, () -> {
+            for (int i = 0; i < batch; i++) {
+                String[] row = sampleRow(rows + i);
+                added.add(repository.insert(row[0], row[1], row[2]));
+            }
+        });
+        measure("addPlace (one insertAll batch)", params("rows", rows, "batch", batch), batch, removeAdded, () -> {
+            List<String[]> chunk = new ArrayList<>(batch);
+            for (int i = 0; i < batch; i++) {
+                chunk.add(sampleRow(rows + i));
+            }
+            int before = store.latest().getId();
+            store.insertAll(chunk);
+            added.addAll(store.pageAfter(before, batch, null));
+        });
+        removeAdded.run();
+
+        // Ids are no longer renumbered on delete (IdCompactor runs offline), so this is the whole cost
+        List<Place> victims = new ArrayList<>();
+        measure("deletePlace", params("rows", rows, "batch", batch), batch, () -> {
+            List<String[]> chunk = new ArrayList<>(batch);
+            for (int i = 0; i < batch; i++) {
+                chunk.add(sampleRow(rows + i));
+            }
+            int before = store.latest().getId();
+            store.insertAll(chunk);
+            victims.clear();
+            victims.addAll(store.pageAfter(before, batch, null));
+        }, () -> {
+            for (Place place : victims) {
+                repository.delete(place);
+            }
+        });
+
+        store.close();
+    }
+
+    // Per-operation latency of the store's hot statements through a one-connection pool, before statement
+    // caching (driver prepares every time, no pool cache) and after (server-side statements, pool cache).
+    // Writes run in a transaction that's rolled back, so the database is left as it was.
+    private void jdbcSuite() throws Exception {
+        String url = DatabaseConnection.getSetting("db.url", "jdbc:mysql://localhost:3306/tourism_db");
+        String uncachedUrl = url.replaceAll("[?&](useServerPrepStmts|cachePrepStmts)=[^&]*", "")
+                .replaceFirst("^([^?]*)&", "$1?");
+        int cacheSize = DatabaseConnection.getInt("pool.statementCacheSize", 64);
+        try {
+            Class.forName(DatabaseConnection.getSetting("db.driver", "com.mysql.cj.jdbc.Driver"));
+        } catch (ClassNotFoundException e) {
+            System.out.println("⚠ Skipping jdbc suite: no JDBC driver on the classpath");
+            return;
+        }
+        statementCases("before", uncachedUrl, 0);
+        statementCases("after", url, cacheSize);
+    }
+
+    private void statementCases(String variant, String url, int cacheSize) throws Exception {
+        ConnectionPool pool = new ConnectionPool(url, DatabaseConnection.getSetting("db.user", "root"),
+                DatabaseConnection.getSetting("db.password", ""), 1, 1, 5000, 300000, 5000, 2, cacheSize);
+        int[] latestId = new int[1];
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT MAX(id) FROM place");
+             ResultSet rs = stmt.executeQuery()) {
+            latestId[0] = rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            System.out.println("⚠ Skipping jdbc suite: " + e.getMessage());
+            pool.close();
+            return;
+        }
+        int ops = 100;
+        Map<String, Object> params = params("statements", variant, "cacheSize", cacheSize);
+        try {
+            measure("jdbc find by id", params, ops, null, () -> {
+                for (int i = 0; i < ops; i++) {
+                    try (Connection conn = pool.getConnection();
+                         PreparedStatement stmt = conn.prepareStatement("SELECT * FROM place WHERE id=?")) {
+                        stmt.setInt(1, latestId[0] - i);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            rs.next();
+                        }
+                    }
+                }
+            });
+            measure("jdbc keyset page", params, ops, null, () -> {
+                for (int i = 0; i < ops; i++) {
+                    try (Connection conn = pool.getConnection();
+                         PreparedStatement stmt = conn.prepareStatement(
+                                 "SELECT id, place_name, city, version FROM place WHERE id > ? ORDER BY id LIMIT ?")) {
+                        stmt.setInt(1, i * 50);
+                        stmt.setInt(2, 50);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                rs.getInt(1);
+                            }
+                        }
+                    }
+                }
+            });
+            measure("jdbc insert+update+delete", params, ops, null, () -> {
+                for (int i = 0; i < ops; i++) {
+                    try (Connection conn = pool.getConnection()) {
+                        conn.setAutoCommit(false);
+                        int id;
+                        try (PreparedStatement stmt = conn.prepareStatement(
+                                "INSERT INTO place (place_name, city, description) VALUES (?, ?, ?)",
+                                PreparedStatement.RETURN_GENERATED_KEYS)) {
+                            String[] row = sampleRow(i);
+                            stmt.setString(1, row[0]);
+                            stmt.setString(2, row[1]);
+                            stmt.setString(3, row[2]);
+                            stmt.executeUpdate();
+                            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                                keys.next();
+                                id = keys.getInt(1);
+                            }
+                        }
+                        try (PreparedStatement stmt = conn.prepareStatement(
+                                "UPDATE place SET description=?, version=version+1 WHERE id=? AND version=?")) {
+                            stmt.setString(1, "Updated");
+                            stmt.setInt(2, id);
+                            stmt.setInt(3, 0);
+                            stmt.executeUpdate();
+                        }
+                        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM place WHERE id=? AND version=?")) {
+                            stmt.setInt(1, id);
+                            stmt.setInt(2, 1);
+                            stmt.executeUpdate();
+                        }
+                        conn.rollback();
+                    }
+                }
+            });
+            System.out.println("   " + pool);
+        } finally {
+            pool.close();
+        }
+    }
+
+    // Concurrent reads through the HTTP API: each iteration fires `clients` requests at once and waits for all of them
+    private void httpSuite(int rows, int clients) throws Exception {
+        LogPlaceStore store = populatedStore(rows);
+        PlaceHttpServer server = new PlaceHttpServer(new PlaceService(new PlaceRepository(store, 32 * 1024 * 1024)));
+        server.start(0);
+        ExecutorService clientThreads = Executors.newFixedThreadPool(8);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientThreads).build();
+        String base = "http://localhost:" + server.getPort() + "/places";
+        Map<String, Object> params = params("rows", rows, "clients", clients);
+        int[] failures = new int[1];
+        try {
+            HttpResponse<String> first = client.send(HttpRequest.newBuilder(URI.create(base + "/1")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            String etag = first.headers().firstValue("ETag").orElse("");
+
+            measure("http GET /places/<id>", params, clients, null, () -> failures[0] += fire(client, clients,
+                    i -> HttpRequest.newBuilder(URI.create(base + "/" + (1 + i % rows))).build(), 200));
+            measure("http GET /places/<id> (304)", params, clients, null, () -> failures[0] += fire(client, clients,
+                    i -> HttpRequest.newBuilder(URI.create(base + "/1")).header("If-None-Match", etag).build(), 304));
+            measure("http GET /places?after=&limit=50", params, clients, null, () -> failures[0] += fire(client, clients,
+                    i -> HttpRequest.newBuilder(URI.create(base + "?limit=50&after=" + (i * 50 % rows))).build(), 200));
+            if (failures[0] > 0) {
+                System.out.println("⚠ " + failures[0] + " requests failed or got an unexpected status");
+            }
+        } finally {
+            server.stop();
+            clientThreads.shutdownNow();
+            store.close();
+        }
+    }
+
+    interface RequestFactory {
+        HttpRequest create(int i);
+    }
+
+    // Sends n requests concurrently; returns how many didn't come back with the expected status
+    private static int fire(HttpClient client, int n, RequestFactory requests, int expectedStatus) {
+        List<CompletableFuture<Integer>> responses = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            responses.add(client.sendAsync(requests.create(i), HttpResponse.BodyHandlers.discarding())
+                    .thenApply(HttpResponse::statusCode)
+                    .exceptionally(e -> -1));
+        }
+        int failures = 0;
+        for (CompletableFuture<Integer> response : responses) {
+            if (response.join() != expectedStatus) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    // Load time and retained heap of a columnar export held as DefaultTableModel rows (one Vector, boxed Integers
+    // and separate Strings per row, as Table used to keep them) and as a CompactCatalogue
+    private void heapSuite(int rows) throws Exception {
+        File file = Files.createTempFile("bench-places", ColumnarPlaceFile.EXTENSION).toFile();
+        file.deleteOnExit();
+        try (ColumnarPlaceFile.Writer writer = new ColumnarPlaceFile.Writer(file)) {
+            for (int i = 0; i < rows; i++) {
+                String[] row = sampleRow(i);
+                writer.write(i + 1, row[0], row[1], row[2]);
+            }
+        }
+        long tableBytes = retainedBytes(() -> defaultTableModel(file));
+        long catalogueBytes = retainedBytes(() -> CompactCatalogue.load(file));
+        System.out.printf("ℹ️ %,d rows: DefaultTableModel keeps %,d MB, CompactCatalogue %,d MB (%.0f%%)%n", rows,
+                tableBytes >> 20, catalogueBytes >> 20, 100.0 * catalogueBytes / tableBytes);
+        measure("load DefaultTableModel", params("rows", rows, "retainedBytes", tableBytes), () -> defaultTableModel(file));
+        measure("load CompactCatalogue", params("rows", rows, "retainedBytes", catalogueBytes), () -> CompactCatalogue.load(file));
+    }
+
+    private static DefaultTableModel defaultTableModel(File file) throws IOException {
+        DefaultTableModel model = new DefaultTableModel(new String[]{"No.", "ID", "Place Name", "City", "Description"}, 0);
+        try (ColumnarPlaceFile.Reader reader = new ColumnarPlaceFile.Reader(file)) {
+            String[] row;
+            while ((row = reader.next()) != null) {
+                model.addRow(new Object[]{model.getRowCount() + 1, reader.id(), row[0], row[1], row[2]});
+            }
+        }
+        return model;
+    }
+
+    interface Loader {
+        Object load() throws Exception;
+    }
+
+    // Heap still reachable from what the loader built, measured between full collections
+    private static long retainedBytes(Loader loader) throws Exception {
+        long before = usedHeap();
+        Object loaded = loader.load();
+        long after = usedHeap();
+        Reference.reachabilityFence(loaded);
+        return after - before;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Descriptions are drawn from a few thousand made-up words, a handful of them very common, so postings
+    // lists range from a few entries to most of the index like they do for real text
+    private void searchSuite(int rows) throws Exception {
+        Random random = new Random(7);
+        String[] syllables = {"ka", "ra", "ma", "ni", "pur", "ta", "lo", "gan", "shi", "vee", "dha", "rum", "ko", "sal", "ban"};
+        String[] vocabulary = new String[4000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 2 + i % 3; s > 0; s--) {
+                word.append(syllables[random.nextInt(syllables.length)]);
+            }
+            vocabulary[i] = word.toString() + (i < 100 ? "" : i); // the first hundred may repeat, like stop words
+        }
+        Place[] places = new Place[rows];
+        for (int i = 0; i < rows; i++) {
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < 20; w++) {
+                // Skewed towards the start of the vocabulary
+                int word = (int) (vocabulary.length * Math.pow(random.nextDouble(), 3));
+                description.append(vocabulary[word]).append(' ');
+            }
+            places[i] = new Place(i + 1, "Place " + i, "City " + (i % 50), description.toString(), 0);
+        }
+
+        SearchIndex[] index = new SearchIndex[1];
+        measure("SearchIndex build", params("rows", rows), rows, () -> index[0] = new SearchIndex(), () -> {
+            for (Place place : places) {
+                index[0].put(place);
+            }
+        });
+
+        int queries = 200;
+        String[] prefix = new String[queries];
+        String[] fuzzy = new String[queries];
+        String[] ranked = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            String word = vocabulary[random.nextInt(vocabulary.length)];
+            prefix[i] = word.substring(0, 3);
+            int typo = 1 + random.nextInt(word.length() - 1);
+            fuzzy[i] = word.substring(0, typo) + (word.charAt(typo) == 'x' ? 'y' : 'x') + word.substring(typo + 1) + " ";
+            ranked[i] = vocabulary[random.nextInt(100)] + " " + word + " city " + (i % 50) + " ";
+        }
+        Map<String, String[]> kinds = new LinkedHashMap<>();
+        kinds.put("prefix", prefix);
+        kinds.put("fuzzy", fuzzy);
+        kinds.put("ranked", ranked);
+        for (Map.Entry<String, String[]> kind : kinds.entrySet()) {
+            measure("SearchIndex search", params("rows", rows, "query", kind.getKey()), queries, null, () -> {
+                for (String query : kind.getValue()) {
+                    index[0].search(query, 100);
+                }
+            });
+        }
+        // Edits as the repository applies them: replace a place, then put the original back
+        measure("SearchIndex put (edit)", params("rows", rows), queries, null, () -> {
+            for (int i = 0; i < queries; i++) {
+                Place place = places[i * (rows / queries)];
+                index[0].put(new Place(place.getId(), place.getPlaceName(), place.getCity(), ranked[i], 1));
+                index[0].put(place);
+            }
+        });
+    }
+
+    // Places spread over India's bounding box, queried at random points inside it
+    private void geoSuite(int points) throws Exception {
+        Random random = new Random(42);
+        Place[] places = new Place[points];
+        for (int i = 0; i < points; i++) {
+            places[i] = new Place(i + 1, "Place " + i, "City " + (i % 50), null, 0,
+                    8 + random.nextDouble() * 27, 68 + random.nextDouble() * 29);
+        }
+        GeoIndex[] index = new GeoIndex[1];
+        measure("GeoIndex build", params("points", points), points, () -> index[0] = new GeoIndex(), () -> {
+            for (Place place : places) {
+                index[0].put(place);
+            }
+        });
+        int queries = 1000;
+        double[][] at = new double[queries][];
+        for (int i = 0; i < queries; i++) {
+            at[i] = new double[]{8 + random.nextDouble() * 27, 68 + random.nextDouble() * 29};
+        }
+        for (int k : new int[]{1, 10, 100}) {
+            measure("GeoIndex nearest", params("points", points, "k", k), queries, null, () -> {
+                for (double[] point : at) {
+                    index[0].nearest(point[0], point[1], k);
+                }
+            });
+        }
+        for (double radiusKm : new double[]{1, 5, 25}) {
+            measure("GeoIndex within", params("points", points, "radiusKm", radiusKm), queries, null, () -> {
+                for (double[] point : at) {
+                    index[0].within(point[0], point[1], radiusKm, 100);
+                }
+            });
+        }
+        // Updates as the change feed applies them: move a place, then put it back
+        measure("GeoIndex put (move)", params("points", points), queries, null, () -> {
+            for (int i = 0; i < queries; i++) {
+                Place place = places[i * (points / queries)];
+                index[0].put(new Place(place.getId(), place.getPlaceName(), place.getCity(), null, 1, at[i][0], at[i][1]));
+                index[0].put(place);
+            }
+        });
+    }
+
+    private void paintSuite() throws Exception {
+        final Exception[] failure = new Exception[1];
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                int width = 1280;
+                int height = 800;
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = image.createGraphics();
+
+                HomePage home = new HomePage();
+                home.setSize(width, height);
+                layout(home);
+                measure("paint HomePage", params("size", width + "x" + height), () -> home.paint(g));
+
+                HomePage.AnimatedButton button = new HomePage.AnimatedButton("📍 View Places");
+                button.setSize(button.getPreferredSize());
+                button.setAlpha(255);
+                measure("paint AnimatedButton", params("alpha", 255), 100, null, () -> {
+                    for (int i = 0; i < 100; i++) {
+                        button.paint(g);
+                    }
+                });
+                // A fade repaints the button at a new alpha every frame
+                measure("paint AnimatedButton (fading)", params("frames", 256), 256, null, () -> {
+                    for (int alpha = 0; alpha < 256; alpha++) {
+                        button.setAlpha(alpha);
+                        button.paint(g);
+                    }
+                });
+
+                // A screenful of description cells: scroll frame time shouldn't depend on how long the text is
+                for (int length : new int[]{100, 10_000}) {
+                    String[][] rows = new String[40][1];
+                    for (int i = 0; i < rows.length; i++) {
+                        StringBuilder text = new StringBuilder();
+                        while (text.length() < length) {
+                            text.append(sampleRow(i)[2]).append(' ');
+                        }
+                        rows[i][0] = text.substring(0, length);
+                    }
+                    JTable cells = new JTable(rows, new String[]{"Description"});
+                    cells.setRowHeight(30);
+                    cells.setSize(900, rows.length * 30);
+                    cells.getColumnModel().getColumn(0).setWidth(900);
+                    measure("paint description cells (default)", params("chars", length), () -> cells.paint(g));
+                    cells.getColumnModel().getColumn(0).setCellRenderer(new DescriptionRenderer(row -> row));
+                    measure("paint description cells (fitted)", params("chars", length), () -> cells.paint(g));
+                }
+                g.dispose();
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    // A whole booklet, an incremental run with nothing changed, and one after a single edit
+    private void bookletSuite(int rows) throws Exception {
+        LogPlaceStore store = populatedStore(rows);
+        Path dir = Files.createTempDirectory("bench-booklet");
+        BookletGenerator generator = new BookletGenerator(store, dir, 6, 0);
+        Map<String, Object> size = params("rows", rows);
+        measure("booklet (full)", size, () -> generator.generate(false));
+        measure("booklet (incremental, unchanged)", size, () -> generator.generate(true));
+        int[] edits = {0};
+        measure("booklet (incremental, one edit)", size, 1, () -> {
+            Place place = store.find(1 + edits[0]++ % rows);
+            store.updateDescription(place, place.getDescription() + " Edited.");
+        }, () -> generator.generate(true));
+        deleteTree(dir);
+    }
+
+    // Time to first frame of a cold start, and screen switches once the window is up. Both use the same embedded
+    // store, so nothing waits on a database server.
+    private void startupSuite(int rows) throws Exception {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.out.println("⚠ Skipping startup suite: no display");
+            return;
+        }
+        Path file = tempStoreFile();
+        populatedStore(file, rows).close();
+        System.setProperty("store.type", "embedded");
+        System.setProperty("store.file", file.toString());
+        System.setProperty("ui.logTimings", "false");
+
+        // Process start to the first painted frame, JVM start-up included
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        measure("startup to first frame (new JVM)", params("rows", rows), () -> {
+            Process child = new ProcessBuilder(java, "-Dstore.type=embedded", "-Dstore.file=" + file,
+                    "-cp", System.getProperty("java.class.path"), "Benchmarks", STARTUP_CHILD).redirectErrorStream(true).start();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                do {
+                    line = out.readLine();
+                } while (line != null && !line.equals(STARTUP_CHILD));
+                if (line == null) {
+                    throw new IOException("The app exited before painting its first frame");
+                }
+            } finally {
+                child.destroy();
+                child.waitFor();
+            }
+        });
+
+        ScreenManager.launch(ScreenManager.ScreenId.HOME);
+        awaitFirstFrame();
+        for (ScreenManager.ScreenId id : ScreenManager.ScreenId.values()) {
+            if (id != ScreenManager.ScreenId.HOME) {
+                measureOnce("screen switch (first show)", params("rows", rows, "screen", id.name().toLowerCase()),
+                        () -> showAndPaint(id));
+            }
+        }
+        measure("screen switch (reused)", params("rows", rows, "screens", "home/table"), 2, null, () -> {
+            showAndPaint(ScreenManager.ScreenId.TABLE);
+            showAndPaint(ScreenManager.ScreenId.HOME);
+        });
+        ScreenManager.get().getFrame().dispose();
+    }
+
+    private static final String STARTUP_CHILD = "startup-child";
+
+    // What the startup suite runs in a fresh JVM: the app as a user starts it, until its first frame is painted
+    private static void startupChild() throws Exception {
+        ScreenManager.launch(ScreenManager.ScreenId.HOME);
+        awaitFirstFrame();
+        System.out.println(STARTUP_CHILD);
+        System.exit(0);
+    }
+
+    private static void awaitFirstFrame() throws InterruptedException {
+        while (ScreenManager.get() == null || ScreenManager.get().getFirstFrameMillis() < 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    // Switches screens and paints the window right away, the way the next repaint would
+    private static void showAndPaint(ScreenManager.ScreenId id) throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            ScreenManager.get().show(id);
+            JRootPane root = ScreenManager.get().getFrame().getRootPane();
+            root.validate();
+            root.paintImmediately(0, 0, root.getWidth(), root.getHeight());
+        });
+    }
+
+    // Every round inserts a few places and lets the threads race on them: each thread keeps its own, often stale,
+    // copies, edits far more than it deletes, and carries on from whatever a conflict hands back. After a round every
+    // place must be deleted exactly once or carry one version per edit that won; at the end the log must replay
+    // to the same places.
+    private void contentionSuite(int threads) throws Exception {
+        Path file = tempStoreFile();
+        LogPlaceStore store = new LogPlaceStore(file, false);
+        int places = 16;
+        int opsPerThread = 500;
+        List<Place> round = new ArrayList<>();
+        AtomicIntegerArray edits = new AtomicIntegerArray(places);
+        AtomicIntegerArray deletes = new AtomicIntegerArray(places);
+        LongAdder won = new LongAdder();
+        LongAdder conflicts = new LongAdder();
+        LongAdder deletedUnderneath = new LongAdder();
+        Map<Integer, Place> expected = new HashMap<>(); // every place used, as it should be at the end; null if deleted
+        Body checkRound = () -> {
+            for (int i = 0; i < round.size(); i++) {
+                Place start = round.get(i);
+                Place now = store.find(start.getId());
+                if (deletes.get(i) > 1) {
+                    throw new IllegalStateException("Place " + start.getId() + " was deleted " + deletes.get(i) + " times");
+                }
+                if (deletes.get(i) == 1 ? now != null : now == null || now.getVersion() != start.getVersion() + edits.get(i)) {
+                    throw new IllegalStateException("Place " + start.getId() + " is " + now + " after " + edits.get(i)
+                            + " edits and " + deletes.get(i) + " deletes");
+                }
+                expected.put(start.getId(), now);
+            }
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            measure("LogPlaceStore contention", params("threads", threads, "places", places), threads * opsPerThread, () -> {
+                checkRound.run();
+                round.clear();
+                for (int i = 0; i < places; i++) {
+                    String[] row = sampleRow(i);
+                    round.add(store.insert(row[0], row[1], row[2]));
+                    edits.set(i, 0);
+                    deletes.set(i, 0);
+                }
+            }, () -> {
+                List<Future<?>> workers = new ArrayList<>(threads);
+                for (int t = 0; t < threads; t++) {
+                    int thread = t;
+                    workers.add(pool.submit(() -> {
+                        Random random = new Random(thread);
+                        Place[] seen = round.toArray(new Place[0]);
+                        for (int op = 0; op < opsPerThread; op++) {
+                            int i = random.nextInt(places);
+                            Place mine = seen[i] != null ? seen[i] : store.find(round.get(i).getId());
+                            if (mine == null) {
+                                continue;
+                            }
+                            try {
+                                if (random.nextInt(50) == 0) {
+                                    if (store.delete(mine)) {
+                                        deletes.incrementAndGet(i);
+                                        won.increment();
+                                    } else {
+                                        deletedUnderneath.increment();
+                                    }
+                                    seen[i] = null;
+                                } else {
+                                    seen[i] = store.updateDescription(mine, "Edited by thread " + thread + " in op " + op);
+                                    if (seen[i] != null) {
+                                        edits.incrementAndGet(i);
+                                        won.increment();
+                                    } else {
+                                        deletedUnderneath.increment();
+                                    }
+                                }
+                            } catch (PlaceConflictException ex) {
+                                Place current = ex.getCurrent();
+                                if (current.getVersion() <= mine.getVersion() || current.getDescription() == null) {
+                                    throw new IllegalStateException("Conflict on " + mine + " came back with " + current);
+                                }
+                                conflicts.increment();
+                                seen[i] = current;
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+            });
+            checkRound.run();
+        } finally {
+            pool.shutdownNow();
+            store.close();
+        }
+
+        LogPlaceStore replayed = new LogPlaceStore(file, false);
+        try {
+            for (Map.Entry<Integer, Place> entry : expected.entrySet()) {
+                Place place = replayed.find(entry.getKey());
+                Place want = entry.getValue();
+                if (want == null ? place != null : place == null || place.getVersion() != want.getVersion()
+                        || !place.getDescription().equals(want.getDescription())) {
+                    throw new IllegalStateException("Replaying the log gives " + place + " instead of " + want);
+                }
+            }
+        } finally {
+            replayed.close();
+        }
+        System.out.printf("ℹ️ Contention: %,d writes won, %,d conflicts, %,d found the place deleted; %,d places replay the same%n",
+                won.sum(), conflicts.sum(), deletedUnderneath.sum(), expected.size());
+    }
+
+    // Thumbnails made on one thread and on the pool, then thumbnail cells painted from the cache and, for
+    // comparison, decoded from their PNG on every paint
+    private void photoSuite() throws Exception {
+        int count = 16;
+        Path sources = Files.createTempDirectory("bench-photos");
+        File[] files = new File[count];
+        for (int i = 0; i < count; i++) {
+            BufferedImage photo = new BufferedImage(2400, 1600, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = photo.createGraphics();
+            g.setPaint(new GradientPaint(0, 0, new Color(i * 15, 80, 160), 2400, 1600, Color.ORANGE));
+            g.fillRect(0, 0, 2400, 1600);
+            g.dispose();
+            files[i] = sources.resolve("photo" + i + ".jpg").toFile();
+            files[i].deleteOnExit();
+            ImageIO.write(photo, "jpg", files[i]);
+        }
+        Path dir = Files.createTempDirectory("bench-photo-store");
+        List<String> hashes = new ArrayList<>();
+        PhotoStore store = null;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        for (int threads : cpus > 1 ? new int[]{1, cpus} : new int[]{1}) {
+            PhotoStore photos = new PhotoStore(dir, 48, threads);
+            measure("attach photos + thumbnails", params("photos", count, "threads", threads), count, () -> deleteTree(dir), () -> {
+                List<CompletableFuture<String>> thumbnails = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    thumbnails.add(photos.attach(i + 1, files[i]));
+                }
+                hashes.clear();
+                for (CompletableFuture<String> thumbnail : thumbnails) {
+                    hashes.add(thumbnail.join());
+                }
+            });
+            store = photos;
+        }
+
+        ThumbnailCache cache = new ThumbnailCache(16 << 20, 48);
+        String[][] rows = new String[40][1];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i][0] = hashes.get(i % count);
+            cache.put(rows[i][0], ImageIO.read(store.thumbnailFile(rows[i][0]).toFile()));
+        }
+        PhotoStore photos = store;
+        final Exception[] failure = new Exception[1];
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                BufferedImage image = new BufferedImage(64, rows.length * 52, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = image.createGraphics();
+                JTable cells = new JTable(rows, new String[]{"Photo"});
+                cells.setRowHeight(52);
+                cells.setSize(64, rows.length * 52);
+                cells.getColumnModel().getColumn(0).setCellRenderer(new ThumbnailRenderer(photos, cache));
+                measure("paint thumbnail cells (cached)", params("rows", rows.length), () -> cells.paint(g));
+                measure("paint thumbnail cells (PNG per cell)", params("rows", rows.length), () -> {
+                    for (int i = 0; i < rows.length; i++) {
+                        g.drawImage(ImageIO.read(photos.thumbnailFile(rows[i][0]).toFile()), 8, i * 52 + 2, null);
+                    }
+                });
+                g.dispose();
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+        });
+        deleteTree(dir);
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                if (!path.equals(dir)) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private static void layout(Component component) {
+        component.doLayout();
+        if (component instanceof Container) {
+            for (Component child : ((Container) component).getComponents()) {
+                layout(child);
+            }
+        }
+    }
+
+    String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"java\": ");
+        PlaceExporter.appendJsonString(json, System.getProperty("java.version"));
+        json.append(",\n  \"timestamp\": ").append(System.currentTimeMillis());
+        json.append(",\n  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"benchmark\": ");
+            PlaceExporter.appendJsonString(json, result.name);
+            for (Map.Entry<String, Object> param : result.params.entrySet()) {
+                json.append(", ");
+                PlaceExporter.appendJsonString(json, param.getKey());
+                json.append(": ");
+                if (param.getValue() instanceof Number) {
+                    json.append(param.getValue());
+                } else {
+                    PlaceExporter.appendJsonString(json, String.valueOf(param.getValue()));
+                }
+            }
+            json.append(String.format(", \"opsPerIteration\": %d, \"iterations\": %d, \"meanNs\": %.0f, \"p50Ns\": %d, \"p99Ns\": %d}",
+                    result.opsPerIteration, result.nanosPerOp.length, result.mean(), result.percentile(0.5), result.percentile(0.99)));
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && args[0].equals(STARTUP_CHILD)) {
+            startupChild();
+            return;
+        }
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("out", "benchmarks.json");
+        options.put("rows", "1000,100000,1000000");
+        options.put("suites", "data,heap,search,paint,startup,photo,booklet,jdbc,http,geo,contention");
+        options.put("bookletRows", "100000");
+        options.put("clients", "1000");
+        options.put("points", "1000000");
+        options.put("threads", "8");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        List<String> suites = Arrays.asList(options.get("suites").split(","));
+
+        Benchmarks benchmarks = new Benchmarks();
+        if (suites.contains("data")) {
+            for (String rows : options.get("rows").split(",")) {
+                benchmarks.dataSuite(Integer.parseInt(rows.trim()));
+            }
+        }
+        if (suites.contains("heap")) {
+            for (String rows : options.get("rows").split(",")) {
+                benchmarks.heapSuite(Integer.parseInt(rows.trim()));
+            }
+        }
+        if (suites.contains("search")) {
+            for (String rows : options.get("rows").split(",")) {
+                benchmarks.searchSuite(Integer.parseInt(rows.trim()));
+            }
+        }
+        if (suites.contains("paint")) {
+            benchmarks.paintSuite();
+        }
+        if (suites.contains("startup")) {
+            String[] rows = options.get("rows").split(",");
+            benchmarks.startupSuite(Integer.parseInt(rows[rows.length - 1].trim()));
+        }
+        if (suites.contains("photo")) {
+            benchmarks.photoSuite();
+        }
+        if (suites.contains("booklet")) {
+            benchmarks.bookletSuite(Integer.parseInt(options.get("bookletRows")));
+        }
+        if (suites.contains("jdbc")) {
+            benchmarks.jdbcSuite();
+        }
+        if (suites.contains("geo")) {
+            benchmarks.geoSuite(Integer.parseInt(options.get("points")));
+        }
+        if (suites.contains("http")) {
+            String[] rows = options.get("rows").split(",");
+            benchmarks.httpSuite(Integer.parseInt(rows[rows.length - 1].trim()), Integer.parseInt(options.get("clients")));
+        }
+
+        if (suites.contains("contention")) {
+            benchmarks.contentionSuite(Integer.parseInt(options.get("threads")));
+        }
+
+        Path out = Paths.get(options.get("out"));
+        try {
+            Files.write(out, benchmarks.toJson().getBytes(StandardCharsets.UTF_8));
+            System.out.println("✅ Results written to " + out.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("❌ Could not write " + out + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
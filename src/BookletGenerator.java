@@ -0,0 +1,497 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Prints the catalogue as a booklet: one HTML document (booklet/booklet.html) with a cover, a table of contents
+// and every city's places on numbered A5 pages, ready for a browser's Print to PDF. Each city's places are
+// streamed from the store one keyset chunk at a time; a chunk's pages are rendered on a ForkJoinPool while the
+// next chunks are fetched, and written out in order, so memory stays at a few chunks however big the catalogue.
+// Every city is rendered to its own fragment in booklet/cities/ and booklet.html is stitched together from them.
+// manifest.properties keeps a fingerprint of each city's places (ids, versions, names, locations), so an
+// incremental run re-renders only the cities that changed since the last run and reuses the other fragments.
+public class BookletGenerator {
+    private static final int FORMAT = 1; // bump when the page layout changes, so incremental runs redo everything
+    private static final int CHUNK = 1000;
+    private static final int MAX_IN_FLIGHT = 8; // chunks being rendered or waiting to be written
+
+    public interface Listener {
+        void progress(int citiesDone, int cities, long places);
+    }
+
+    public static class Result {
+        public final int cities;
+        public final int rendered; // the rest were unchanged and reused
+        public final long places;
+        public final long pages;
+        public final long elapsedMillis;
+        public final File file;
+
+        Result(int cities, int rendered, long places, long pages, long elapsedMillis, File file) {
+            this.cities = cities;
+            this.rendered = rendered;
+            this.places = places;
+            this.pages = pages;
+            this.elapsedMillis = elapsedMillis;
+            this.file = file;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d places in %d cities on %d pages (%d cities rendered, %d unchanged) in %.1f s",
+                    places, cities, pages, rendered, cities - rendered, elapsedMillis / 1000.0);
+        }
+    }
+
+    private final PlaceStore store;
+    private final Path dir;
+    private final Path fragments;
+    private final int placesPerPage;
+    private final int threads;
+    private Listener listener;
+
+    public BookletGenerator() {
+        this(PlaceStore.shared(), Paths.get(DatabaseConnection.getSetting("booklet.dir", "booklet")),
+                DatabaseConnection.getInt("booklet.placesPerPage", 6), DatabaseConnection.getInt("booklet.threads", 0));
+    }
+
+    // threads <= 0 means one per CPU
+    public BookletGenerator(PlaceStore store, Path dir, int placesPerPage, int threads) {
+        this.store = store;
+        this.dir = dir;
+        this.fragments = dir.resolve("cities");
+        this.placesPerPage = Math.max(1, placesPerPage);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Writes booklet.html and returns what went into it; incremental reuses the cities that haven't changed
+    public Result generate(boolean incremental) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(fragments);
+        Properties previous = incremental ? readManifest() : new Properties();
+        Map<String, Integer> counts = store.cityCounts();
+        List<CityEntry> entries = new ArrayList<>(counts.size());
+        ArrayDeque<Chunk> inFlight = new ArrayDeque<>();
+        List<CityOutput> outputs = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        int rendered = 0;
+        long places = 0;
+        try {
+            for (String city : counts.keySet()) {
+                CityEntry entry = CityEntry.parse(city, previous.getProperty("city." + city));
+                if (entry == null || !Files.exists(fragments.resolve(entry.file))
+                        || !entry.fingerprint.equals(fingerprint(city))) {
+                    entry = new CityEntry(city);
+                    render(entry, pool, inFlight, outputs);
+                    rendered++;
+                }
+                entries.add(entry);
+                places += entry.places;
+                if (listener != null) {
+                    listener.progress(entries.size(), counts.size(), places);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writeOldest(inFlight);
+            }
+        } finally {
+            pool.shutdownNow();
+            for (CityOutput out : outputs) {
+                out.abort();
+            }
+        }
+        removeStaleFragments(entries);
+        Path booklet = assemble(entries);
+        writeManifest(entries);
+        long pages = entries.stream().mapToLong(entry -> entry.pages).sum();
+        return new Result(entries.size(), rendered, places, pages, (System.nanoTime() - start) / 1_000_000, booklet.toFile());
+    }
+
+    // Streams the city's places chunk by chunk, handing each chunk's pages to the pool
+    private void render(CityEntry entry, ForkJoinPool pool, ArrayDeque<Chunk> inFlight, List<CityOutput> outputs)
+            throws SQLException, IOException {
+        CityOutput out = new CityOutput(entry);
+        outputs.add(out);
+        Fingerprint fingerprint = new Fingerprint();
+        // Whole pages per chunk, so page numbers don't depend on how the city was cut up
+        int chunkSize = (CHUNK + placesPerPage - 1) / placesPerPage * placesPerPage;
+        int afterId = Integer.MIN_VALUE;
+        List<Place> places;
+        do {
+            places = store.pageAfter(afterId, chunkSize, entry.city);
+            int[] ids = places.stream().mapToInt(Place::getId).toArray();
+            Map<Integer, String> descriptions = ids.length == 0 ? Collections.emptyMap() : store.descriptions(ids);
+            for (Place place : places) {
+                fingerprint.add(place);
+            }
+            Chunk chunk = new Chunk(out, places, descriptions, entry.pages, places.size() < chunkSize);
+            entry.places += places.size();
+            entry.pages += chunk.pages.length;
+            pool.execute(chunk.task);
+            inFlight.add(chunk);
+            while (inFlight.size() > MAX_IN_FLIGHT) {
+                writeOldest(inFlight);
+            }
+            if (!places.isEmpty()) {
+                afterId = places.get(places.size() - 1).getId();
+            }
+        } while (places.size() == chunkSize);
+        entry.fingerprint = fingerprint.toString();
+    }
+
+    private void writeOldest(ArrayDeque<Chunk> inFlight) throws IOException {
+        Chunk chunk = inFlight.peek();
+        chunk.task.join();
+        inFlight.poll();
+        for (String page : chunk.pages) {
+            chunk.out.writer.write(page);
+        }
+        if (chunk.last) {
+            chunk.out.finish();
+        }
+    }
+
+    // The same fingerprint render() records, from summaries only (no descriptions)
+    private String fingerprint(String city) throws SQLException {
+        Fingerprint fingerprint = new Fingerprint();
+        int afterId = Integer.MIN_VALUE;
+        List<Place> places;
+        do {
+            places = store.pageAfter(afterId, CHUNK, city);
+            for (Place place : places) {
+                fingerprint.add(place);
+            }
+            if (!places.isEmpty()) {
+                afterId = places.get(places.size() - 1).getId();
+            }
+        } while (places.size() == CHUNK);
+        return fingerprint.toString();
+    }
+
+    // Cover, contents, then every city's fragment copied in as it is
+    private Path assemble(List<CityEntry> entries) throws IOException {
+        Path booklet = dir.resolve("booklet.html");
+        Path tmp = dir.resolve("booklet.html.tmp");
+        long places = entries.stream().mapToLong(entry -> entry.places).sum();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            StringBuilder html = new StringBuilder(4096 + 128 * entries.size());
+            html.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"utf-8\">\n<title>Tourism Booklet</title>\n")
+                    .append("<style>\n")
+                    .append("@page { size: A5; margin: 14mm; }\n")
+                    .append("body { font-family: Georgia, serif; color: #222; margin: 0; background: #eee; }\n")
+                    .append(".page { background: #fff; box-sizing: border-box; break-after: page; page-break-after: always; }\n")
+                    .append("@media screen { .page { width: 148mm; min-height: 210mm; margin: 8mm auto; padding: 14mm; box-shadow: 0 1px 4px #999; } }\n")
+                    .append(".page > header { color: #0066cc; font-size: 10pt; border-bottom: 1px solid #0066cc; margin-bottom: 4mm; }\n")
+                    .append(".page > footer { color: #888; font-size: 9pt; text-align: center; margin-top: 4mm; }\n")
+                    .append("h1 { color: #0066cc; font-size: 28pt; margin-top: 40mm; text-align: center; }\n")
+                    .append("h2 { color: #0066cc; }\n")
+                    .append("h3 { margin: 3mm 0 1mm; font-size: 13pt; }\n")
+                    .append(".where { color: #666; font-size: 9pt; margin: 0; }\n")
+                    .append(".place p { margin: 1mm 0; font-size: 10.5pt; line-height: 1.35; }\n")
+                    .append(".contents li { margin: 1mm 0; }\n")
+                    .append("</style>\n</head>\n<body>\n");
+            html.append("<section class=\"page cover\">\n<h1>Tourism Booklet</h1>\n<p style=\"text-align:center\">")
+                    .append(places).append(" places in ").append(entries.size()).append(" cities<br>")
+                    .append(new SimpleDateFormat("d MMMM yyyy", Locale.ENGLISH).format(new Date()))
+                    .append("</p>\n</section>\n");
+            html.append("<section class=\"page\">\n<h2>Contents</h2>\n<ol class=\"contents\">\n");
+            for (CityEntry entry : entries) {
+                html.append("<li><a href=\"#").append(entry.anchor()).append("\">");
+                appendHtml(html, entry.city);
+                html.append("</a> — ").append(entry.places).append(entry.places == 1 ? " place, " : " places, ")
+                        .append(entry.pages).append(entry.pages == 1 ? " page" : " pages").append("</li>\n");
+            }
+            html.append("</ol>\n</section>\n");
+            out.write(html.toString().getBytes(StandardCharsets.UTF_8));
+            for (CityEntry entry : entries) {
+                Files.copy(fragments.resolve(entry.file), out);
+            }
+            out.write("</body>\n</html>\n".getBytes(StandardCharsets.UTF_8));
+        }
+        Files.move(tmp, booklet, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return booklet;
+    }
+
+    private void removeStaleFragments(List<CityEntry> entries) throws IOException {
+        Set<String> live = new HashSet<>();
+        for (CityEntry entry : entries) {
+            live.add(entry.file);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(fragments)) {
+            for (Path file : files) {
+                if (!live.contains(file.getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // A manifest from another page layout counts as empty
+    private Properties readManifest() throws IOException {
+        Properties manifest = new Properties();
+        Path file = dir.resolve("manifest.properties");
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                manifest.load(in);
+            }
+        }
+        if (!String.valueOf(FORMAT).equals(manifest.getProperty("format"))
+                || !String.valueOf(placesPerPage).equals(manifest.getProperty("placesPerPage"))) {
+            manifest.clear();
+        }
+        return manifest;
+    }
+
+    private void writeManifest(List<CityEntry> entries) throws IOException {
+        Properties manifest = new Properties();
+        manifest.setProperty("format", String.valueOf(FORMAT));
+        manifest.setProperty("placesPerPage", String.valueOf(placesPerPage));
+        for (CityEntry entry : entries) {
+            manifest.setProperty("city." + entry.city, entry.fingerprint + " " + entry.places + " " + entry.pages + " " + entry.file);
+        }
+        Path tmp = dir.resolve("manifest.properties.tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            manifest.store(out, "Tourism Booklet: one line per city, see BookletGenerator");
+        }
+        Files.move(tmp, dir.resolve("manifest.properties"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String renderPage(String city, List<Place> places, Map<Integer, String> descriptions, int pageNumber) {
+        StringBuilder html = new StringBuilder(256 + 768 * places.size());
+        html.append("<section class=\"page\">\n<header>");
+        appendHtml(html, city);
+        html.append("</header>\n");
+        if (pageNumber == 1) {
+            html.append("<h2>");
+            appendHtml(html, city);
+            html.append("</h2>\n");
+        }
+        for (Place place : places) {
+            html.append("<article class=\"place\">\n<h3>");
+            appendHtml(html, place.getPlaceName());
+            html.append("</h3>\n");
+            if (place.hasLocation()) {
+                html.append(String.format(Locale.ROOT, "<p class=\"where\">%.5f, %.5f</p>\n", place.getLatitude(), place.getLongitude()));
+            }
+            String description = descriptions.get(place.getId());
+            if (description != null) {
+                for (String paragraph : description.trim().split("\\n\\s*\\n")) {
+                    html.append("<p>");
+                    appendHtml(html, paragraph.trim());
+                    html.append("</p>\n");
+                }
+            }
+            html.append("</article>\n");
+        }
+        html.append("<footer>");
+        appendHtml(html, city);
+        html.append(" · ").append(pageNumber).append("</footer>\n</section>\n");
+        return html.toString();
+    }
+
+    // Escapes text for HTML; single line breaks are kept
+    static void appendHtml(StringBuilder out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<': out.append("&lt;"); break;
+                case '>': out.append("&gt;"); break;
+                case '&': out.append("&amp;"); break;
+                case '"': out.append("&quot;"); break;
+                case '\n': out.append("<br>"); break;
+                case '\r': break;
+                default: out.append(c);
+            }
+        }
+    }
+
+    // One chunk of a city: its pages are filled in by the pool, then written in order by the generating thread
+    private class Chunk {
+        final CityOutput out;
+        final String[] pages;
+        final boolean last;
+        final RecursiveAction task;
+
+        Chunk(CityOutput out, List<Place> places, Map<Integer, String> descriptions, int firstPage, boolean last) {
+            this.out = out;
+            this.pages = new String[(places.size() + placesPerPage - 1) / placesPerPage];
+            this.last = last;
+            this.task = new RenderPages(out.entry.city, places, descriptions, firstPage, 0, pages.length, pages);
+        }
+    }
+
+    // Splits a chunk's pages in halves until a task has a single page left
+    private class RenderPages extends RecursiveAction {
+        final String city;
+        final List<Place> places;
+        final Map<Integer, String> descriptions;
+        final int firstPage;
+        final int from;
+        final int to;
+        final String[] pages;
+
+        RenderPages(String city, List<Place> places, Map<Integer, String> descriptions, int firstPage, int from, int to, String[] pages) {
+            this.city = city;
+            this.places = places;
+            this.descriptions = descriptions;
+            this.firstPage = firstPage;
+            this.from = from;
+            this.to = to;
+            this.pages = pages;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int page = from; page < to; page++) {
+                    List<Place> onPage = places.subList(page * placesPerPage, Math.min(places.size(), (page + 1) * placesPerPage));
+                    pages[page] = renderPage(city, onPage, descriptions, firstPage + page + 1);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RenderPages(city, places, descriptions, firstPage, from, middle, pages),
+                    new RenderPages(city, places, descriptions, firstPage, middle, to, pages));
+        }
+    }
+
+    // A city's fragment file, written to a temporary name and moved into place once complete
+    private class CityOutput {
+        final CityEntry entry;
+        final Path tmp;
+        final Writer writer;
+        boolean finished;
+
+        CityOutput(CityEntry entry) throws IOException {
+            this.entry = entry;
+            this.tmp = fragments.resolve(entry.file + ".tmp");
+            this.writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8);
+            writer.write("<div class=\"city\" id=\"" + entry.anchor() + "\">\n");
+        }
+
+        void finish() throws IOException {
+            writer.write("</div>\n");
+            writer.close();
+            Files.move(tmp, fragments.resolve(entry.file), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        // Drops a fragment that didn't get finished
+        void abort() {
+            if (finished) {
+                return;
+            }
+            try {
+                writer.close();
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // Left for the next run's removeStaleFragments
+            }
+        }
+    }
+
+    private static class CityEntry {
+        final String city;
+        final String file;
+        String fingerprint;
+        long places;
+        int pages;
+
+        CityEntry(String city) {
+            this.city = city;
+            String slug = city.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+            this.file = (slug.length() > 40 ? slug.substring(0, 40) : slug) + String.format("-%08x.html", city.hashCode());
+        }
+
+        // From a manifest line: fingerprint, places, pages, file
+        static CityEntry parse(String city, String line) {
+            String[] fields = line == null ? new String[0] : line.split(" ");
+            if (fields.length != 4) {
+                return null;
+            }
+            CityEntry entry = new CityEntry(city);
+            if (!entry.file.equals(fields[3])) {
+                return null;
+            }
+            entry.fingerprint = fields[0];
+            entry.places = Long.parseLong(fields[1]);
+            entry.pages = Integer.parseInt(fields[2]);
+            return entry;
+        }
+
+        String anchor() {
+            return "city-" + file.substring(0, file.length() - ".html".length());
+        }
+    }
+
+    // Order-sensitive 64-bit hash of what a city's pages show, apart from the descriptions themselves; a new
+    // description always comes with a new version
+    private static class Fingerprint {
+        long hash = 0xcbf29ce484222325L;
+        long count;
+
+        void add(Place place) {
+            mix(place.getId());
+            mix(place.getVersion());
+            mix(place.getPlaceName() == null ? 0 : place.getPlaceName().hashCode());
+            mix(Double.hashCode(place.getLatitude()));
+            mix(Double.hashCode(place.getLongitude()));
+            count++;
+        }
+
+        private void mix(int value) {
+            hash = (hash ^ value) * 0x100000001b3L;
+        }
+
+        @Override
+        public String toString() {
+            return Long.toHexString(hash) + ":" + count;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean incremental = args.length > 0 && args[0].equals("--incremental");
+        if (args.length > (incremental ? 1 : 0)) {
+            System.err.println("Usage: BookletGenerator [--incremental]");
+            System.exit(2);
+        }
+        BookletGenerator generator = new BookletGenerator();
+        final long[] lastReport = {0};
+        generator.setListener((done, cities, places) -> {
+            long now = System.currentTimeMillis();
+            if (now - lastReport[0] >= 1000) {
+                lastReport[0] = now;
+                System.out.printf("… %d of %d cities, %d places%n", done, cities, places);
+            }
+        });
+        Result result = generator.generate(incremental);
+        System.out.println("✅ " + result);
+        System.out.println("📖 " + result.file.getAbsolutePath());
+    }
+}
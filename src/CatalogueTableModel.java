@@ -0,0 +1,90 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.JTableHeader;
+import java.awt.*;
+import java.io.File;
+
+// Read-only table model straight over a CompactCatalogue: cells are decoded from the catalogue's slabs as JTable
+// paints them, so a million-row catalogue costs no more heap on screen than it does in memory. The catalogue must
+// not change while it is shown. `java CatalogueTableModel places.tbc` browses an export without importing it.
+public class CatalogueTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"No.", "ID", "Place Name", "City", "Description"};
+
+    private final CompactCatalogue catalogue;
+
+    public CatalogueTableModel(CompactCatalogue catalogue) {
+        catalogue.trim(); // rows are then looked up by index directly
+        this.catalogue = catalogue;
+    }
+
+    // Changes whenever a row's description does; for DescriptionRenderer
+    public long keyFor(int row) {
+        return (long) catalogue.idAt(row) << 32 | (catalogue.versionAt(row) & 0xffffffffL);
+    }
+
+    @Override
+    public int getRowCount() {
+        return catalogue.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == PlaceTableModel.ORDINAL_COLUMN || column == PlaceTableModel.ID_COLUMN ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case PlaceTableModel.ORDINAL_COLUMN:
+                return row + 1;
+            case PlaceTableModel.ID_COLUMN:
+                return catalogue.idAt(row);
+            case PlaceTableModel.NAME_COLUMN:
+                return catalogue.nameAt(row);
+            case PlaceTableModel.CITY_COLUMN:
+                return catalogue.cityAt(row);
+            default:
+                return catalogue.descriptionPreviewAt(row, PlaceTableModel.PREVIEW_CHARS);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: CatalogueTableModel <places" + ColumnarPlaceFile.EXTENSION + ">");
+            System.exit(2);
+        }
+        File input = new File(args[0]);
+        long start = System.nanoTime();
+        CompactCatalogue catalogue = CompactCatalogue.load(input);
+        CatalogueTableModel model = new CatalogueTableModel(catalogue);
+        System.out.printf("✅ Loaded %d places from %s in %d ms (about %d MB)%n", catalogue.size(), input,
+                (System.nanoTime() - start) / 1_000_000, catalogue.heapBytes() >> 20);
+
+        SwingUtilities.invokeLater(() -> {
+            JTable table = new JTable(model);
+            table.setRowHeight(30);
+            table.getColumnModel().getColumn(PlaceTableModel.DESCRIPTION_COLUMN).setCellRenderer(new DescriptionRenderer(model::keyFor));
+            JTableHeader header = table.getTableHeader();
+            header.setBackground(new Color(0, 102, 204));
+            header.setForeground(Color.WHITE);
+            header.setFont(new Font("Serif", Font.BOLD, 16));
+
+            JFrame frame = new JFrame(input.getName() + " — " + catalogue.size() + " places");
+            frame.add(new JScrollPane(table));
+            frame.setSize(1200, 800);
+            frame.setLocationRelativeTo(null);
+            frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+            frame.setVisible(true);
+        });
+    }
+}
@@ -0,0 +1,300 @@
+import javax.swing.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Live updates from other clients. Every insert, edit and delete writes a row to place_changes in the same
+// transaction as the change itself; this polls for rows after the last sequence number it has seen, applies
+// them to PlaceRepository, SearchIndex and GeoIndex, and hands them to listeners on the EDT. Polls back off while
+// nothing changes and snap back to the base interval as soon as something does. Rows older than
+// feed.retentionDays are pruned about once an hour by whichever client gets there.
+public class ChangeFeed {
+    public static final char INSERT = 'I';
+    public static final char UPDATE = 'U';
+    public static final char DELETE = 'D';
+    public static final char BULK = 'B'; // many rows at once (imports, id compaction): reload everything
+
+    private static final String LOG = "INSERT INTO place_changes (place_id, op) VALUES (?, ?)";
+    private static final String SINCE = "SELECT seq, place_id, op FROM place_changes WHERE seq > ? ORDER BY seq LIMIT ?";
+    // A sequence number that still hasn't shown up after this long was rolled back, not just committed late
+    private static final long GAP_TIMEOUT_MILLIS = 5000;
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int PRUNE_CHUNK = 10000;
+    private static final ChangeFeed SHARED = new ChangeFeed();
+
+    public interface Listener {
+        // Called on the EDT
+        void placesChanged(Changes changes);
+    }
+
+    // One poll's worth of changes, folded so each place appears at most once
+    public static class Changes {
+        public final List<Place> inserted = new ArrayList<>();
+        public final List<Place> updated = new ArrayList<>();
+        public final List<Integer> deleted = new ArrayList<>();
+        public boolean reload;
+    }
+
+    private final int basePollMillis = DatabaseConnection.getInt("feed.pollMs", 1000);
+    private final int maxPollMillis = DatabaseConnection.getInt("feed.maxPollMs", 16000);
+    private final int batchSize = DatabaseConnection.getInt("feed.batchSize", 500);
+    private final int retentionDays = DatabaseConnection.getInt("feed.retentionDays", 7);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Changes this process made itself and has already applied locally
+    private final Set<Long> own = new ConcurrentSkipListSet<>();
+    // Sequence numbers above lastSeq that were already handled while waiting for a gap below them to fill
+    private final TreeSet<Long> seenAhead = new TreeSet<>();
+    private ScheduledExecutorService poller;
+    private volatile boolean running;
+    private long lastSeq = -1;
+    private long gapSince;
+    private int pollMillis;
+    private boolean failing;
+    private long lastPrune;
+    // Set when rows this client never read were pruned, e.g. after a long sleep
+    private boolean missedChanges;
+
+    public static ChangeFeed shared() {
+        return SHARED;
+    }
+
+    // Records a change on the connection's current transaction, so it commits or rolls back with the change
+    static void log(Connection conn, int placeId, char op) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(LOG, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, placeId);
+            pstmt.setString(2, String.valueOf(op));
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                // Single-row changes are applied by the writer itself; bulk ones come back through the feed
+                if (keys.next() && op != BULK && SHARED.running) {
+                    SHARED.own.add(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    static void logBulk(Connection conn) throws SQLException {
+        log(conn, 0, BULK);
+    }
+
+    public synchronized void start() {
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        pollMillis = basePollMillis;
+        poller.schedule(this::poll, 0, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (poller != null) {
+            running = false;
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public long getLastSequence() {
+        return lastSeq;
+    }
+
+    private void poll() {
+        boolean changed = false;
+        try {
+            if (lastSeq < 0) {
+                lastSeq = latestSequence();
+            } else {
+                changed = pollOnce();
+            }
+            if (retentionDays > 0 && System.currentTimeMillis() - lastPrune > PRUNE_INTERVAL_MILLIS) {
+                lastPrune = System.currentTimeMillis();
+                prune();
+            }
+            failing = false;
+        } catch (SQLException ex) {
+            if (!failing) {
+                System.err.println("⚠ Change feed poll failed, backing off: " + ex.getMessage());
+                failing = true;
+            }
+        } catch (RuntimeException ex) {
+            // A bug in applying one batch mustn't stop live updates for the rest of the session
+            System.err.println("❌ Change feed poll failed: " + ex);
+            ex.printStackTrace();
+        } finally {
+            pollMillis = changed ? basePollMillis : Math.min(maxPollMillis, pollMillis * 2);
+            synchronized (this) {
+                if (poller != null) {
+                    poller.schedule(this::poll, pollMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    private boolean pollOnce() throws SQLException {
+        // Last operation per place wins; ids are resolved to current rows in one query afterwards
+        Map<Integer, Character> ops = new LinkedHashMap<>();
+        boolean reload = false;
+        boolean any = false;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SINCE)) {
+            pstmt.setLong(1, lastSeq);
+            pstmt.setInt(2, batchSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long seq = rs.getLong(1);
+                    if (!seenAhead.add(seq) || own.remove(seq)) {
+                        continue;
+                    }
+                    any = true;
+                    char op = rs.getString(3).charAt(0);
+                    if (op == BULK) {
+                        reload = true;
+                    } else {
+                        int id = rs.getInt(2);
+                        Character previous = ops.remove(id);
+                        // An insert followed by an edit is still an insert; followed by a delete, nothing happened
+                        if (previous != null && previous == INSERT && op == UPDATE) {
+                            op = INSERT;
+                        }
+                        if (!(previous != null && previous == INSERT && op == DELETE)) {
+                            ops.put(id, op);
+                        }
+                    }
+                }
+            }
+        }
+        advance();
+        if (missedChanges) {
+            missedChanges = false;
+            any = true;
+            reload = true;
+        }
+        if (!any) {
+            return false;
+        }
+        Changes changes = new Changes();
+        changes.reload = reload;
+        if (reload) {
+            PlaceRepository.shared().clear();
+            SearchIndex.shared().invalidate();
+            GeoIndex.shared().invalidate();
+        } else {
+            resolve(ops, changes);
+        }
+        for (Listener listener : listeners) {
+            SwingUtilities.invokeLater(() -> listener.placesChanged(changes));
+        }
+        return true;
+    }
+
+    private void resolve(Map<Integer, Character> ops, Changes changes) throws SQLException {
+        int[] ids = ops.entrySet().stream().filter(e -> e.getValue() != DELETE).mapToInt(Map.Entry::getKey).toArray();
+        Map<Integer, Place> current = ids.length == 0 ? Collections.emptyMap() : PlaceStore.shared().places(ids);
+        PlaceRepository repository = PlaceRepository.shared();
+        SearchIndex index = SearchIndex.shared();
+        GeoIndex geo = GeoIndex.shared();
+        for (Map.Entry<Integer, Character> entry : ops.entrySet()) {
+            int id = entry.getKey();
+            if (entry.getValue() == DELETE) {
+                repository.forget(id);
+                index.remove(id);
+                geo.remove(id);
+                changes.deleted.add(id);
+                continue;
+            }
+            Place place = current.get(id);
+            if (place == null) {
+                continue; // deleted since; that change is further down the log
+            }
+            boolean inserted = entry.getValue() == INSERT;
+            repository.changedElsewhere(place, inserted);
+            index.put(place);
+            geo.put(place);
+            (inserted ? changes.inserted : changes.updated).add(place);
+        }
+    }
+
+    // Moves lastSeq past every contiguous sequence already handled. A hole is waited on for a while, since
+    // auto-increment values can commit out of order, then skipped as a rollback.
+    private void advance() {
+        while (seenAhead.remove(lastSeq + 1)) {
+            lastSeq++;
+        }
+        if (seenAhead.isEmpty()) {
+            gapSince = 0;
+        } else if (gapSince == 0) {
+            gapSince = System.currentTimeMillis();
+        } else if (System.currentTimeMillis() - gapSince > GAP_TIMEOUT_MILLIS) {
+            lastSeq = seenAhead.first() - 1;
+            gapSince = 0;
+            advance();
+        }
+        // Own changes below lastSeq that never showed up were rolled back
+        own.removeIf(seq -> seq <= lastSeq);
+    }
+
+    // Deletes changes older than the retention period, a chunk at a time so no single statement holds locks for long
+    private void prune() throws SQLException {
+        long cutoff;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT COALESCE(MAX(seq), 0) FROM place_changes WHERE changed_at < CURRENT_TIMESTAMP - INTERVAL ? DAY")) {
+            pstmt.setInt(1, retentionDays);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                cutoff = rs.next() ? rs.getLong(1) : 0;
+            }
+            if (cutoff == 0) {
+                return;
+            }
+            int deleted;
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM place_changes WHERE seq <= ? ORDER BY seq LIMIT ?")) {
+                delete.setLong(1, cutoff);
+                delete.setInt(2, PRUNE_CHUNK);
+                do {
+                    deleted = delete.executeUpdate();
+                } while (deleted == PRUNE_CHUNK);
+            }
+        }
+        // Anything between here and the cutoff is gone for good, so the next poll reloads instead
+        if (lastSeq < cutoff) {
+            missedChanges = true;
+            seenAhead.clear();
+            lastSeq = cutoff;
+        }
+    }
+
+    private static long latestSequence() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(seq), 0) FROM place_changes")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Compact binary export of the place table, for fast reloads with PlaceImporter.
+//
+// Layout: "TBCF", version, then row groups of up to GROUP_SIZE rows, then a group with 0 rows.
+// Each group stores its columns one after another: ids as zigzag varint deltas (one byte each for consecutive
+// ids), a city dictionary with one index per row, then place names and descriptions as length-prefixed UTF-8
+// (length -1 means null). Version 1 files stored each id delta as a 4-byte int and can still be read.
+// The file is written next to the target and moved into place on close, so a failed export leaves the old one.
+public class ColumnarPlaceFile {
+    public static final String EXTENSION = ".tbc";
+    private static final int MAGIC = 0x54424346; // "TBCF"
+    private static final int VERSION = 2;
+    private static final int GROUP_SIZE = 4096;
+
+    public static class Writer implements PlaceExporter.Sink {
+        private final Path target;
+        private final Path tmp;
+        private final DataOutputStream out;
+        private final int[] ids = new int[GROUP_SIZE];
+        private final String[] names = new String[GROUP_SIZE];
+        private final String[] cities = new String[GROUP_SIZE];
+        private final String[] descriptions = new String[GROUP_SIZE];
+        private int size;
+
+        public Writer(File output) throws IOException {
+            target = output.toPath();
+            tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        @Override
+        public void write(int id, String placeName, String city, String description) throws IOException {
+            ids[size] = id;
+            names[size] = placeName;
+            cities[size] = city;
+            descriptions[size] = description;
+            if (++size == GROUP_SIZE) {
+                flushGroup();
+            }
+        }
+
+        private void flushGroup() throws IOException {
+            out.writeInt(size);
+
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                writeVarInt(ids[i] - previous);
+                previous = ids[i];
+            }
+
+            Map<String, Integer> dictionary = new HashMap<>();
+            int[] codes = new int[size];
+            for (int i = 0; i < size; i++) {
+                Integer code = dictionary.get(cities[i]);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.put(cities[i], code);
+                }
+                codes[i] = code;
+            }
+            String[] entries = new String[dictionary.size()];
+            for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+                entries[entry.getValue()] = entry.getKey();
+            }
+            out.writeInt(entries.length);
+            for (String entry : entries) {
+                writeString(entry);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeShort(codes[i]); // at most GROUP_SIZE distinct values per group
+            }
+
+            for (int i = 0; i < size; i++) {
+                writeString(names[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                writeString(descriptions[i]);
+            }
+
+            Arrays.fill(names, 0, size, null);
+            Arrays.fill(cities, 0, size, null);
+            Arrays.fill(descriptions, 0, size, null);
+            size = 0;
+        }
+
+        // Zigzag maps small negative deltas to small unsigned values, then 7 bits per byte, low bits first
+        private void writeVarInt(int value) throws IOException {
+            int bits = (value << 1) ^ (value >> 31);
+            while ((bits & ~0x7f) != 0) {
+                out.writeByte((bits & 0x7f) | 0x80);
+                bits >>>= 7;
+            }
+            out.writeByte(bits);
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                try {
+                    if (size > 0) {
+                        flushGroup();
+                    }
+                    out.writeInt(0);
+                } finally {
+                    out.close();
+                }
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+        }
+
+        @Override
+        public void abort() {
+            try {
+                out.close();
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                System.err.println("⚠ Could not remove " + tmp + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Reads one row group at a time and hands rows out as {id, place_name, city, description}
+    public static class Reader implements AutoCloseable {
+        private final DataInputStream in;
+        private final int version;
+        private int[] ids = new int[0];
+        private String[] names, cities, descriptions;
+        private int size;
+        private int next;
+        private boolean finished;
+
+        public Reader(File input) throws IOException {
+            FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ);
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            if (in.readInt() != MAGIC) {
+                in.close();
+                throw new IOException(input + " is not a " + EXTENSION + " file");
+            }
+            version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                in.close();
+                throw new IOException("Unsupported " + EXTENSION + " version " + version);
+            }
+        }
+
+        public int id() {
+            return ids[next - 1];
+        }
+
+        // Returns {place_name, city, description} for the next row, or null at the end
+        public String[] next() throws IOException {
+            if (next == size) {
+                if (finished || !readGroup()) {
+                    return null;
+                }
+            }
+            int i = next++;
+            return new String[]{names[i], cities[i], descriptions[i]};
+        }
+
+        private boolean readGroup() throws IOException {
+            int count;
+            try {
+                count = in.readInt();
+            } catch (EOFException e) {
+                count = 0;
+            }
+            if (count == 0) {
+                finished = true;
+                return false;
+            }
+            if (ids.length < count) {
+                ids = new int[count];
+                names = new String[count];
+                cities = new String[count];
+                descriptions = new String[count];
+            }
+            int previous = 0;
+            for (int i = 0; i < count; i++) {
+                previous += version == 1 ? in.readInt() : readVarInt();
+                ids[i] = previous;
+            }
+            String[] dictionary = new String[in.readInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString();
+            }
+            for (int i = 0; i < count; i++) {
+                cities[i] = dictionary[in.readUnsignedShort()];
+            }
+            for (int i = 0; i < count; i++) {
+                names[i] = readString();
+            }
+            for (int i = 0; i < count; i++) {
+                descriptions[i] = readString();
+            }
+            size = count;
+            next = 0;
+            return true;
+        }
+
+        private int readVarInt() throws IOException {
+            int bits = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readUnsignedByte();
+                bits |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return (bits >>> 1) ^ -(bits & 1);
+                }
+            }
+            throw new IOException("Malformed id in " + EXTENSION + " file");
+        }
+
+        private String readString() throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
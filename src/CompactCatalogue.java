@@ -0,0 +1,497 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// The whole place catalogue in memory at a few dozen bytes a row instead of a Place, three Strings and a boxed
+// Integer each. Rows are kept sorted by id in parallel primitive arrays; each city name is stored once and rows
+// hold its dictionary code; names and descriptions stay UTF-8 in large byte slabs and are only turned into
+// Strings when asked for. Deleted rows are left as holes and squeezed out once they pile up.
+// Not thread-safe: LogPlaceStore guards it with its own lock.
+public class CompactCatalogue {
+    private static final int SLAB_BYTES = 1 << 20;
+    private static final long NO_TEXT = -1;
+    private static final int DELETED = -1;
+    private static final int MIN_HOLES_TO_SQUEEZE = 1024;
+
+    private int size; // rows in the arrays, deleted ones included
+    private int live;
+    private int[] ids = new int[16];
+    private int[] versions = new int[16];
+    private int[] cities = new int[16]; // dictionary code, or DELETED
+    private long[] names = new long[16]; // slab references: slab index << 32 | offset
+    private long[] descriptions = new long[16];
+    private double[] latitudes = new double[16];
+    private double[] longitudes = new double[16];
+
+    private final List<String> cityNames = new ArrayList<>();
+    private final Map<String, Integer> cityCodes = new HashMap<>();
+    private final List<IdList> cityIds = new ArrayList<>(); // per city code, the ids of its live rows
+
+    private final List<byte[]> slabs = new ArrayList<>();
+    private int slabUsed = SLAB_BYTES;
+    private long textBytes;
+    private long garbageBytes; // text of replaced or deleted rows, reclaimed by repackText()
+
+    // Loads a columnar export (see ColumnarPlaceFile); exports carry no versions or locations
+    public static CompactCatalogue load(File file) throws IOException {
+        CompactCatalogue catalogue = new CompactCatalogue();
+        try (ColumnarPlaceFile.Reader reader = new ColumnarPlaceFile.Reader(file)) {
+            String[] row;
+            while ((row = reader.next()) != null) {
+                if (row[1] == null) {
+                    throw new IOException("Place " + reader.id() + " in " + file + " has no city");
+                }
+                catalogue.put(new Place(reader.id(), row[0], row[1], row[2]));
+            }
+        }
+        catalogue.trim();
+        return catalogue;
+    }
+
+    // Adds the place, or replaces the stored one with the same id. The city is required.
+    public void put(Place place) {
+        int row = Arrays.binarySearch(ids, 0, size, place.getId());
+        int city = cityCode(place.getCity());
+        if (row < 0) {
+            row = -row - 1;
+            openRow(row);
+            ids[row] = place.getId();
+            cities[row] = DELETED;
+            names[row] = NO_TEXT;
+            descriptions[row] = NO_TEXT;
+        }
+        if (cities[row] == DELETED) {
+            live++;
+            cityIds.get(city).add(place.getId());
+        } else {
+            release(names[row]);
+            release(descriptions[row]);
+            if (cities[row] != city) {
+                cityIds.get(cities[row]).remove(place.getId());
+                cityIds.get(city).add(place.getId());
+            }
+        }
+        versions[row] = place.getVersion();
+        cities[row] = city;
+        names[row] = store(place.getPlaceName());
+        descriptions[row] = store(place.getDescription());
+        latitudes[row] = place.getLatitude();
+        longitudes[row] = place.getLongitude();
+        if (garbageBytes > SLAB_BYTES && garbageBytes > textBytes / 2) {
+            repackText();
+        }
+    }
+
+    // Returns false if there was no such place
+    public boolean remove(int id) {
+        int row = find(id);
+        if (row < 0) {
+            return false;
+        }
+        cityIds.get(cities[row]).remove(id);
+        release(names[row]);
+        release(descriptions[row]);
+        cities[row] = DELETED;
+        names[row] = NO_TEXT;
+        descriptions[row] = NO_TEXT;
+        live--;
+        if (size - live >= MIN_HOLES_TO_SQUEEZE && size - live > live) {
+            squeeze();
+        }
+        return true;
+    }
+
+    public int size() {
+        return live;
+    }
+
+    public int count(String city) {
+        if (city == null) {
+            return live;
+        }
+        Integer code = cityCodes.get(city);
+        return code == null ? 0 : cityIds.get(code).size;
+    }
+
+    // Number of places per city, by city name
+    public Map<String, Integer> cityCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (int code = 0; code < cityNames.size(); code++) {
+            if (cityIds.get(code).size > 0) {
+                counts.put(cityNames.get(code), cityIds.get(code).size);
+            }
+        }
+        return counts;
+    }
+
+    // The complete place, or null
+    public Place get(int id) {
+        int row = find(id);
+        return row < 0 ? null : place(row, true);
+    }
+
+    // The place without its description, or null
+    public Place summary(int id) {
+        int row = find(id);
+        return row < 0 ? null : place(row, false);
+    }
+
+    public String description(int id) {
+        int row = find(id);
+        return row < 0 ? null : text(descriptions[row]);
+    }
+
+    // At most maxChars of the description (see PlaceStore.preview); only the bytes needed for that are decoded
+    public String descriptionPreview(int id, int maxChars) {
+        int row = find(id);
+        return row < 0 ? null : preview(descriptions[row], maxChars);
+    }
+
+    // The place with the highest id, or null when empty
+    public Place last() {
+        for (int row = size - 1; row >= 0; row--) {
+            if (cities[row] != DELETED) {
+                return place(row, true);
+            }
+        }
+        return null;
+    }
+
+    // Up to limit places with ids above afterId, in id order, optionally only one city's
+    public List<Place> pageAfter(int afterId, int limit, String city, boolean withDescriptions) {
+        List<Place> page = new ArrayList<>(Math.min(limit, 256));
+        if (city == null) {
+            for (int row = rowAfter(afterId); row < size && page.size() < limit; row++) {
+                if (cities[row] != DELETED) {
+                    page.add(place(row, withDescriptions));
+                }
+            }
+            return page;
+        }
+        Integer code = cityCodes.get(city);
+        if (code != null) {
+            IdList list = cityIds.get(code);
+            for (int i = list.indexAfter(afterId); i < list.size && page.size() < limit; i++) {
+                page.add(place(find(list.ids[i]), withDescriptions));
+            }
+        }
+        return page;
+    }
+
+    // Summaries of up to limit places starting at the offset-th one in id order, optionally only one city's
+    public List<Place> pageAt(int offset, int limit, String city) {
+        List<Place> page = new ArrayList<>(Math.min(limit, 256));
+        if (city == null) {
+            if (offset >= live) {
+                return page;
+            }
+            for (int row = rowAt(Math.max(0, offset)); row < size && page.size() < limit; row++) {
+                if (cities[row] != DELETED) {
+                    page.add(place(row, false));
+                }
+            }
+            return page;
+        }
+        Integer code = cityCodes.get(city);
+        if (code != null) {
+            IdList list = cityIds.get(code);
+            for (int i = Math.max(0, offset); i < list.size && page.size() < limit; i++) {
+                page.add(place(find(list.ids[i]), false));
+            }
+        }
+        return page;
+    }
+
+    // Squeezes out deleted rows, reclaimed text and spare capacity once loading is done; index-based access
+    // (idAt() and friends, as used by CatalogueTableModel) is then direct
+    public void trim() {
+        if (size > live) {
+            squeeze();
+        }
+        if (garbageBytes > 0) {
+            repackText();
+        }
+        resize(Math.max(size, 16));
+        if (!slabs.isEmpty() && slabUsed < SLAB_BYTES) {
+            slabs.set(slabs.size() - 1, Arrays.copyOf(slabs.get(slabs.size() - 1), slabUsed));
+            slabUsed = SLAB_BYTES; // the next text starts a new slab
+        }
+    }
+
+    // Index-based access to the index-th place in id order: direct after trim(), a walk otherwise
+    public int idAt(int index) {
+        return ids[rowAt(index)];
+    }
+
+    public int versionAt(int index) {
+        return versions[rowAt(index)];
+    }
+
+    public String nameAt(int index) {
+        return text(names[rowAt(index)]);
+    }
+
+    public String cityAt(int index) {
+        return cityNames.get(cities[rowAt(index)]);
+    }
+
+    public String descriptionPreviewAt(int index, int maxChars) {
+        return preview(descriptions[rowAt(index)], maxChars);
+    }
+
+    // Approximate heap taken by the arrays, the dictionary and the text slabs
+    public long heapBytes() {
+        long arrays = (long) ids.length * (4 + 4 + 4 + 8 + 8 + 8 + 8);
+        long dictionary = 0;
+        for (int code = 0; code < cityNames.size(); code++) {
+            dictionary += 64 + 2L * cityNames.get(code).length() + 4L * cityIds.get(code).ids.length;
+        }
+        long text = 0;
+        for (byte[] slab : slabs) {
+            text += slab.length;
+        }
+        return arrays + dictionary + text;
+    }
+
+    private int find(int id) {
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        return row >= 0 && cities[row] != DELETED ? row : -1;
+    }
+
+    private int rowAfter(int afterId) {
+        int row = Arrays.binarySearch(ids, 0, size, afterId);
+        return row >= 0 ? row + 1 : -row - 1;
+    }
+
+    private int rowAt(int index) {
+        if (index < 0 || index >= live) {
+            throw new IndexOutOfBoundsException("Place " + index + " of " + live);
+        }
+        if (size == live) {
+            return index;
+        }
+        for (int row = 0; ; row++) {
+            if (cities[row] != DELETED && index-- == 0) {
+                return row;
+            }
+        }
+    }
+
+    private Place place(int row, boolean withDescription) {
+        return new Place(ids[row], text(names[row]), cityNames.get(cities[row]),
+                withDescription ? text(descriptions[row]) : null, versions[row], latitudes[row], longitudes[row]);
+    }
+
+    private int cityCode(String city) {
+        Integer code = cityCodes.get(city);
+        if (code == null) {
+            if (city == null) {
+                throw new IllegalArgumentException("A place needs a city");
+            }
+            code = cityNames.size();
+            cityNames.add(city);
+            cityCodes.put(city, code);
+            cityIds.add(new IdList());
+        }
+        return code;
+    }
+
+    // Makes room for a new row at the given position; ids only ever grow, so this is nearly always an append
+    private void openRow(int row) {
+        if (size == ids.length) {
+            resize(size + (size >> 1) + 1);
+        }
+        if (row < size) {
+            int moved = size - row;
+            System.arraycopy(ids, row, ids, row + 1, moved);
+            System.arraycopy(versions, row, versions, row + 1, moved);
+            System.arraycopy(cities, row, cities, row + 1, moved);
+            System.arraycopy(names, row, names, row + 1, moved);
+            System.arraycopy(descriptions, row, descriptions, row + 1, moved);
+            System.arraycopy(latitudes, row, latitudes, row + 1, moved);
+            System.arraycopy(longitudes, row, longitudes, row + 1, moved);
+        }
+        size++;
+    }
+
+    private void resize(int capacity) {
+        if (capacity == ids.length) {
+            return;
+        }
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        cities = Arrays.copyOf(cities, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+    }
+
+    private void squeeze() {
+        int to = 0;
+        for (int row = 0; row < size; row++) {
+            if (cities[row] == DELETED) {
+                continue;
+            }
+            ids[to] = ids[row];
+            versions[to] = versions[row];
+            cities[to] = cities[row];
+            names[to] = names[row];
+            descriptions[to] = descriptions[row];
+            latitudes[to] = latitudes[row];
+            longitudes[to] = longitudes[row];
+            to++;
+        }
+        size = to;
+    }
+
+    // Copies the live text into fresh slabs, dropping what replaced and deleted rows left behind
+    private void repackText() {
+        List<byte[]> old = new ArrayList<>(slabs);
+        slabs.clear();
+        slabUsed = SLAB_BYTES;
+        textBytes = 0;
+        garbageBytes = 0;
+        for (int row = 0; row < size; row++) {
+            if (cities[row] != DELETED) {
+                names[row] = copy(old, names[row]);
+                descriptions[row] = copy(old, descriptions[row]);
+            }
+        }
+    }
+
+    private long copy(List<byte[]> from, long ref) {
+        if (ref == NO_TEXT) {
+            return NO_TEXT;
+        }
+        byte[] slab = from.get((int) (ref >>> 32));
+        int offset = (int) ref;
+        int length = readLength(slab, offset);
+        int start = offset + lengthBytes(length);
+        return append(slab, start, length);
+    }
+
+    // Each text is a varint byte length followed by its UTF-8 bytes
+    private long store(String text) {
+        if (text == null) {
+            return NO_TEXT;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        return append(utf8, 0, utf8.length);
+    }
+
+    private long append(byte[] bytes, int from, int length) {
+        int needed = lengthBytes(length) + length;
+        if (slabUsed + needed > SLAB_BYTES || slabs.isEmpty()) {
+            // Texts bigger than a slab get a slab of their own
+            slabs.add(new byte[Math.max(SLAB_BYTES, needed)]);
+            slabUsed = 0;
+        }
+        byte[] slab = slabs.get(slabs.size() - 1);
+        long ref = (long) (slabs.size() - 1) << 32 | slabUsed;
+        int at = slabUsed;
+        for (int value = length; ; value >>>= 7) {
+            if ((value & ~0x7f) == 0) {
+                slab[at++] = (byte) value;
+                break;
+            }
+            slab[at++] = (byte) (value & 0x7f | 0x80);
+        }
+        System.arraycopy(bytes, from, slab, at, length);
+        // Nothing else goes into an oversized slab
+        slabUsed = slab.length > SLAB_BYTES ? SLAB_BYTES : at + length;
+        textBytes += needed;
+        return ref;
+    }
+
+    private void release(long ref) {
+        if (ref != NO_TEXT) {
+            byte[] slab = slabs.get((int) (ref >>> 32));
+            int length = readLength(slab, (int) ref);
+            garbageBytes += lengthBytes(length) + length;
+        }
+    }
+
+    private String text(long ref) {
+        if (ref == NO_TEXT) {
+            return null;
+        }
+        byte[] slab = slabs.get((int) (ref >>> 32));
+        int offset = (int) ref;
+        int length = readLength(slab, offset);
+        return new String(slab, offset + lengthBytes(length), length, StandardCharsets.UTF_8);
+    }
+
+    private String preview(long ref, int maxChars) {
+        if (ref == NO_TEXT) {
+            return null;
+        }
+        byte[] slab = slabs.get((int) (ref >>> 32));
+        int offset = (int) ref;
+        int length = readLength(slab, offset);
+        int start = offset + lengthBytes(length);
+        // A character is at most 4 UTF-8 bytes; one more lets PlaceStore.preview see that text was cut
+        int decoded = (int) Math.min(length, 4L * (maxChars + 1));
+        while (decoded < length && (slab[start + decoded] & 0xc0) == 0x80) {
+            decoded--; // don't decode half a character
+        }
+        return PlaceStore.preview(new String(slab, start, decoded, StandardCharsets.UTF_8), maxChars);
+    }
+
+    private static int readLength(byte[] slab, int offset) {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = slab[offset++];
+            length |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return length;
+            }
+        }
+    }
+
+    private static int lengthBytes(int length) {
+        int bytes = 1;
+        while ((length >>>= 7) != 0) {
+            bytes++;
+        }
+        return bytes;
+    }
+
+    // Sorted ids, appended to in the common case
+    private static class IdList {
+        int size;
+        int[] ids = new int[4];
+
+        void add(int id) {
+            int at = size == 0 || ids[size - 1] < id ? size : -Arrays.binarySearch(ids, 0, size, id) - 1;
+            if (at < 0) {
+                return; // already there
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                size--;
+            }
+        }
+
+        int indexAfter(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            return at >= 0 ? at + 1 : -at - 1;
+        }
+    }
+}
@@ -0,0 +1,589 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded JDBC connection pool. Connections handed out are proxies whose close() returns them to the pool.
+// Each pooled connection also keeps its most recently used prepared statements, keyed by SQL, so the hot
+// statements are parsed once per connection instead of once per operation.
+public class ConnectionPool implements AutoCloseable {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long validationIntervalMs;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    // A j.u.c lock rather than a monitor, so virtual threads waiting for a connection don't pin their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledEntry> idle = new ArrayDeque<>(); // most recently used first
+    private final ScheduledExecutorService evictor;
+    private int total;
+    private int active;
+    private int waiting;
+    private boolean closed;
+    private DbMetrics metrics; // statement tracing, or null
+
+    // metrics
+    private long acquireCount;
+    private long acquireNanosTotal;
+    private long acquireNanosMax;
+    private long timeoutCount;
+    private long createdCount;
+    private long evictedCount;
+    private long invalidCount;
+    private long statementHits;
+    private long statementMisses;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+                          long acquireTimeoutMs, long idleTimeoutMs, long validationIntervalMs, int validationTimeoutSeconds,
+                          int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = Math.max(0, Math.min(minIdle, maxSize));
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationIntervalMs = validationIntervalMs;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        if (idleTimeoutMs > 0) {
+            long period = Math.max(1000, idleTimeoutMs / 2);
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+
+        while (true) {
+            PooledEntry entry = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    entry = idle.pollFirst();
+                    if (entry != null) {
+                        break;
+                    }
+                    if (total < maxSize) {
+                        total++;
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount++;
+                        throw new SQLTimeoutException("Timed out after " + acquireTimeoutMs + " ms waiting for a database connection ("
+                                + active + " active, " + waiting + " waiting)");
+                    }
+                    waiting++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    } finally {
+                        waiting--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    entry = new PooledEntry(DriverManager.getConnection(url, user, password));
+                } catch (SQLException e) {
+                    lock.lock();
+                    try {
+                        total--;
+                        available.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                    throw e;
+                }
+                lock.lock();
+                try {
+                    createdCount++;
+                } finally {
+                    lock.unlock();
+                }
+            } else if (!isUsable(entry)) {
+                discard(entry);
+                lock.lock();
+                try {
+                    invalidCount++;
+                } finally {
+                    lock.unlock();
+                }
+                continue;
+            }
+
+            long elapsed = System.nanoTime() - start;
+            lock.lock();
+            try {
+                active++;
+                acquireCount++;
+                acquireNanosTotal += elapsed;
+                acquireNanosMax = Math.max(acquireNanosMax, elapsed);
+            } finally {
+                lock.unlock();
+            }
+            return entry.lease();
+        }
+    }
+
+    // Opens minIdle connections (at least one) ahead of time so the first query doesn't pay for the handshake
+    public void warmUp() throws SQLException {
+        int target = Math.max(1, minIdle);
+        List<Connection> borrowed = new ArrayList<>();
+        try {
+            while (borrowed.size() < target && getTotalCount() < target) {
+                borrowed.add(getConnection());
+            }
+        } finally {
+            for (Connection conn : borrowed) {
+                conn.close();
+            }
+        }
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        if (System.currentTimeMillis() - entry.lastUsed < validationIntervalMs) {
+            return true;
+        }
+        try {
+            return entry.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledEntry entry, boolean broken) {
+        boolean keep;
+        lock.lock();
+        try {
+            active--;
+            keep = !closed && !broken;
+            if (keep) {
+                entry.lastUsed = System.currentTimeMillis();
+                idle.addFirst(entry);
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (!keep) {
+            discard(entry);
+        }
+    }
+
+    private void discard(PooledEntry entry) {
+        try {
+            entry.connection.close();
+        } catch (SQLException ignored) {
+        }
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictIdle() {
+        List<PooledEntry> expired = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Iterator<PooledEntry> it = idle.descendingIterator(); // oldest first
+            while (it.hasNext() && idle.size() > minIdle) {
+                PooledEntry entry = it.next();
+                if (now - entry.lastUsed >= idleTimeoutMs) {
+                    it.remove();
+                    expired.add(entry);
+                    evictedCount++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PooledEntry entry : expired) {
+            discard(entry);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<PooledEntry> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        evictor.shutdownNow();
+        for (PooledEntry entry : toClose) {
+            discard(entry);
+        }
+    }
+
+    // Times every statement created on connections from this pool from now on
+    public void setMetrics(DbMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaitingCount() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getTotalCount() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAcquireCount() {
+        lock.lock();
+        try {
+            return acquireCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getAverageAcquireMillis() {
+        lock.lock();
+        try {
+            return acquireCount == 0 ? 0 : acquireNanosTotal / (double) acquireCount / 1_000_000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getMaxAcquireMillis() {
+        lock.lock();
+        try {
+            return acquireNanosMax / 1_000_000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getStatementCacheHits() {
+        lock.lock();
+        try {
+            return statementHits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getStatementCacheMisses() {
+        lock.lock();
+        try {
+            return statementMisses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getTimeoutCount() {
+        lock.lock();
+        try {
+            return timeoutCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("pool[active=%d, idle=%d, waiting=%d, total=%d/%d, acquired=%d, avgAcquire=%.3fms, maxAcquire=%.3fms, "
+                            + "timeouts=%d, created=%d, evicted=%d, invalid=%d, stmtHits=%d, stmtMisses=%d]",
+                    active, idle.size(), waiting, total, maxSize, acquireCount,
+                    acquireCount == 0 ? 0 : acquireNanosTotal / (double) acquireCount / 1_000_000.0,
+                    acquireNanosMax / 1_000_000.0, timeoutCount, createdCount, evictedCount, invalidCount,
+                    statementHits, statementMisses);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class PooledEntry {
+        final Connection connection;
+        long lastUsed = System.currentTimeMillis();
+        // Only touched by the thread holding the lease
+        final Map<String, CachedStatement> statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                eldest.getValue().evicted();
+                return true;
+            }
+        };
+
+        PooledEntry(Connection connection) {
+            this.connection = connection;
+        }
+
+        // A cached statement for this SQL and these prepareStatement options, or null to prepare one normally
+        PreparedStatement prepare(Method method, Object[] args) throws ReflectiveOperationException, SQLException {
+            if (statementCacheSize == 0 || args == null || !(args[0] instanceof String)) {
+                return null;
+            }
+            String key = args.length == 1 ? (String) args[0] : args[0] + "\u0000" + Arrays.toString(Arrays.copyOfRange(args, 1, args.length));
+            CachedStatement cached = statements.get(key);
+            if (cached != null && cached.inUse) {
+                return null; // the same SQL twice at once on one connection; the second one isn't cached
+            }
+            if (cached == null || cached.statement.isClosed()) {
+                cached = new CachedStatement((PreparedStatement) method.invoke(connection, args));
+                statements.put(key, cached);
+                lock.lock();
+                try {
+                    statementMisses++;
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                lock.lock();
+                try {
+                    statementHits++;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return cached.checkOut(method.getReturnType());
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+    }
+
+    private class Lease implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean released;
+        private boolean broken;
+
+        Lease(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        resetState();
+                        release(entry, broken);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || entry.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + entry.connection;
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                Object result = name.equals("prepareStatement") ? entry.prepare(method, args) : null;
+                if (result == null) {
+                    result = method.invoke(entry.connection, args);
+                }
+                DbMetrics tracer = metrics;
+                if (tracer != null && result instanceof Statement) {
+                    String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                    return tracer.trace((Statement) result, method.getReturnType(), sql);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isFatal((SQLException) cause)) {
+                    broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        private void resetState() {
+            try {
+                if (!entry.connection.getAutoCommit()) {
+                    entry.connection.rollback();
+                    entry.connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                broken = true;
+            }
+        }
+
+        private boolean isFatal(SQLException e) {
+            String state = e.getSQLState();
+            return state != null && state.startsWith("08"); // connection exception class
+        }
+    }
+
+    // A prepared statement kept open between leases. Each caller gets its own proxy whose close() hands the
+    // statement back instead of closing it.
+    private static class CachedStatement {
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement checkOut(Class<?> type) {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{type}, new Checkout());
+        }
+
+        // Dropped from the cache: closed now, or when the caller is done with it
+        void evicted() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+
+        private class Checkout implements InvocationHandler {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            inUse = false;
+                            if (evicted || statement.isClosed()) {
+                                closeQuietly();
+                            } else {
+                                statement.clearParameters();
+                                statement.clearBatch();
+                            }
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || statement.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+                if (closed) {
+                    throw new SQLException("Statement has already been closed");
+                }
+                try {
+                    return method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
@@ -1,33 +1,111 @@
-import javax.swing.*;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-
-public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/tourism_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
-    private static final String USER = "root";
-    private static final String PASSWORD = "ayush123";
-
-    public static Connection getConnection() {
-        try {
-            Connection connection = DriverManager.getConnection(URL , USER, PASSWORD);
-            System.out.println("✅ Database connection successful!");
-            return connection;
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(null, "❌ Database connection failed! " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            return null;
-        }
-    }
-
-    public static void main(String[] args) {
-        try (Connection conn = getConnection()) {
-            if (conn != null) {
-                System.out.println("✅ Connection successful!");
-            } else {
-                System.out.println("❌ Connection failed!");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-}
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+public class DatabaseConnection {
+    private static final String CONFIG_FILE = "db.properties";
+    private static final Properties CONFIG = loadConfig();
+
+    private static volatile ConnectionPool pool;
+
+    // Borrows a connection from the shared pool; closing it hands it back.
+    public static Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
+
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseConnection.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(
+                            getSetting("db.url", "jdbc:mysql://localhost:3306/tourism_db"),
+                            getSetting("db.user", "root"),
+                            getSetting("db.password", ""),
+                            getInt("pool.maxSize", 8),
+                            getInt("pool.minIdle", 1),
+                            getInt("pool.acquireTimeoutMs", 5000),
+                            getInt("pool.idleTimeoutMs", 300000),
+                            getInt("pool.validationIntervalMs", 5000),
+                            getInt("pool.validationTimeoutSeconds", 2),
+                            getInt("pool.statementCacheSize", 64));
+                    if (getBoolean("metrics.enabled", true)) {
+                        p.setMetrics(DbMetrics.shared());
+                        DbMetrics.shared().start(p);
+                    }
+                    final ConnectionPool created = p;
+                    Runtime.getRuntime().addShutdownHook(new Thread(created::close, "connection-pool-shutdown"));
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    public static String getSetting(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = CONFIG.getProperty(key, defaultValue);
+        }
+        return value == null ? null : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getSetting(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠ Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getSetting(key, null);
+        return value == null || value.isEmpty() ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    // Looks for -Dtourism.config, then ./db.properties, then db.properties on the classpath.
+    private static Properties loadConfig() {
+        Properties props = new Properties();
+        Path path = Paths.get(System.getProperty("tourism.config", CONFIG_FILE));
+        try {
+            if (Files.isRegularFile(path)) {
+                try (InputStream in = new FileInputStream(path.toFile())) {
+                    props.load(in);
+                }
+            } else {
+                try (InputStream in = DatabaseConnection.class.getResourceAsStream("/" + CONFIG_FILE)) {
+                    if (in != null) {
+                        props.load(in);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ Failed to read " + path + ": " + e.getMessage());
+        }
+        return props;
+    }
+
+    public static void main(String[] args) {
+        try (Connection conn = getConnection()) {
+            System.out.println("✅ Connection successful! " + conn.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            System.out.println("❌ Connection failed! " + e.getMessage());
+        }
+        System.out.println(getPool());
+        for (String line : DbMetrics.shared().getStatementStats()) {
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+import javax.management.ObjectName;
+
+// Latency, row and error statistics for every SQL statement that runs through the connection pool, grouped by
+// statement text. Statements handed out by pooled connections are wrapped so each execute is timed into a
+// log-linear histogram; queries count the rows read from their result set. Statements slower than
+// metrics.slowQueryMs are logged as they happen. Everything is visible through JMX and appended to
+// metrics.logFile every metrics.dumpSeconds.
+public class DbMetrics implements DbMetricsMBean {
+    private static final DbMetrics SHARED = new DbMetrics();
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int RECENT_SLOW_QUERIES = 50;
+
+    private final long slowNanos = TimeUnit.MILLISECONDS.toNanos(DatabaseConnection.getInt("metrics.slowQueryMs", 200));
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final Deque<String> recentSlow = new ArrayDeque<>();
+    private final AtomicLong slowCount = new AtomicLong();
+    private ConnectionPool pool;
+    private boolean started;
+
+    public static DbMetrics shared() {
+        return SHARED;
+    }
+
+    // Registers the MBean and schedules the periodic dump; called once the pool exists
+    public synchronized void start(ConnectionPool pool) {
+        this.pool = pool;
+        if (started) {
+            return;
+        }
+        started = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("TourismBooklet:type=DbMetrics"));
+        } catch (Exception e) {
+            System.err.println("⚠ Could not register DB metrics with JMX: " + e.getMessage());
+        }
+        int dumpSeconds = DatabaseConnection.getInt("metrics.dumpSeconds", 300);
+        if (dumpSeconds > 0) {
+            ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "db-metrics-dump");
+                t.setDaemon(true);
+                return t;
+            });
+            dumper.scheduleWithFixedDelay(this::dump, dumpSeconds, dumpSeconds, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::dump, "db-metrics-final-dump"));
+        }
+    }
+
+    // Wraps a statement from a pooled connection; sql is null for a plain Statement, which gets it per execute
+    Statement trace(Statement statement, Class<?> type, String sql) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+                new TracedStatement(statement, sql == null ? null : normalize(sql)));
+    }
+
+    void record(String sql, long nanos, long rows, SQLException error) {
+        StatementStats stats = stats(sql);
+        stats.latency.record(nanos);
+        if (rows > 0) {
+            stats.rows.addAndGet(rows);
+        }
+        if (error != null) {
+            stats.errors.incrementAndGet();
+        }
+        if (nanos >= slowNanos) {
+            slowCount.incrementAndGet();
+            String entry = String.format("%s %d ms%s: %s", LocalDateTime.now(), nanos / 1_000_000,
+                    error != null ? " (failed: " + error.getMessage() + ")" : rows >= 0 ? " (" + rows + " rows)" : "", sql);
+            System.err.println("🐢 Slow query " + entry);
+            synchronized (recentSlow) {
+                recentSlow.addFirst(entry);
+                if (recentSlow.size() > RECENT_SLOW_QUERIES) {
+                    recentSlow.removeLast();
+                }
+            }
+        }
+    }
+
+    private StatementStats stats(String sql) {
+        return statements.computeIfAbsent(sql, s -> new StatementStats());
+    }
+
+    // IN lists of any length count as one statement
+    static String normalize(String sql) {
+        return IN_LIST.matcher(WHITESPACE.matcher(sql.trim()).replaceAll(" ")).replaceAll("(?...)");
+    }
+
+    @Override
+    public long getStatementCount() {
+        long count = 0;
+        for (StatementStats stats : statements.values()) {
+            count += stats.latency.count();
+        }
+        return count;
+    }
+
+    @Override
+    public long getErrorCount() {
+        long count = 0;
+        for (StatementStats stats : statements.values()) {
+            count += stats.errors.get();
+        }
+        return count;
+    }
+
+    @Override
+    public long getSlowQueryCount() {
+        return slowCount.get();
+    }
+
+    @Override
+    public String[] getStatementStats() {
+        List<Map.Entry<String, StatementStats>> entries = new ArrayList<>(statements.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, StatementStats> e) -> e.getValue().latency.totalNanos()).reversed());
+        String[] lines = new String[entries.size()];
+        for (int i = 0; i < lines.length; i++) {
+            StatementStats stats = entries.get(i).getValue();
+            Histogram h = stats.latency;
+            lines[i] = String.format("count=%d errors=%d rows=%d total=%.1fms mean=%.3fms p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms  %s",
+                    h.count(), stats.errors.get(), stats.rows.get(), h.totalNanos() / 1e6, h.mean() / 1e6,
+                    h.percentile(0.50) / 1e6, h.percentile(0.95) / 1e6, h.percentile(0.99) / 1e6, h.max() / 1e6,
+                    entries.get(i).getKey());
+        }
+        return lines;
+    }
+
+    @Override
+    public String[] getRecentSlowQueries() {
+        synchronized (recentSlow) {
+            return recentSlow.toArray(new String[0]);
+        }
+    }
+
+    @Override
+    public String getPoolStats() {
+        return String.valueOf(pool);
+    }
+
+    @Override
+    public void reset() {
+        statements.clear();
+        slowCount.set(0);
+        synchronized (recentSlow) {
+            recentSlow.clear();
+        }
+    }
+
+    public void dump() {
+        if (statements.isEmpty()) {
+            return;
+        }
+        String file = DatabaseConnection.getSetting("metrics.logFile", "db-metrics.log");
+        try (Writer out = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write("=== " + LocalDateTime.now() + "  " + getPoolStats() + "  slow=" + getSlowQueryCount() + "\n");
+            for (String line : getStatementStats()) {
+                out.write(line);
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ Could not write DB metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static class StatementStats {
+        final Histogram latency = new Histogram();
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+    }
+
+    // Log-linear latency histogram in the spirit of HdrHistogram: each power of two of microseconds is split
+    // into 16 linear buckets, so percentiles are accurate to about 6% with a fixed 1 k-entry array and no locks.
+    static class Histogram {
+        private static final int LINEAR = 32;
+        private static final int SUB_BUCKETS = 16;
+        private final AtomicLongArray buckets = new AtomicLongArray(LINEAR + 64 * SUB_BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            buckets.incrementAndGet(index(Math.max(0, nanos / 1000)));
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            long previous;
+            while (nanos > (previous = max.get()) && !max.compareAndSet(previous, nanos)) {
+                // retry
+            }
+        }
+
+        static int index(long micros) {
+            if (micros < LINEAR) {
+                return (int) micros;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(micros) - 4; // leaves the top five bits: 16..31
+            return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (micros >> shift) - SUB_BUCKETS;
+        }
+
+        // Highest value, in nanoseconds, that falls into the bucket
+        static long upperBoundNanos(int index) {
+            if (index < LINEAR) {
+                return index * 1000L + 999;
+            }
+            int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+            long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+            return (((sub + 1) << shift) - 1) * 1000L + 999;
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        long totalNanos() {
+            return total.get();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        double mean() {
+            long n = count.get();
+            return n == 0 ? 0 : total.get() / (double) n;
+        }
+
+        long percentile(double p) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(p * n));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBoundNanos(i), max.get());
+                }
+            }
+            return max.get();
+        }
+    }
+
+    private class TracedStatement implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+
+        TracedStatement(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                return call(method, args);
+            }
+            String key = sql != null ? sql : args != null && args.length > 0 && args[0] instanceof String
+                    ? normalize((String) args[0]) : "(batch)";
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = call(method, args);
+            } catch (SQLException e) {
+                record(key, System.nanoTime() - start, -1, e);
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (result instanceof ResultSet) {
+                // Latency now; rows once the caller has read them
+                record(key, elapsed, -1, null);
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new CountedResultSet((ResultSet) result, key));
+            }
+            record(key, elapsed, rows(result), null);
+            return result;
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private long rows(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                return ((Number) result).longValue();
+            }
+            if (result instanceof int[]) {
+                long rows = 0;
+                for (int n : (int[]) result) {
+                    rows += Math.max(n, 0); // SUCCESS_NO_INFO is negative
+                }
+                return rows;
+            }
+            return -1;
+        }
+    }
+
+    private class CountedResultSet implements InvocationHandler {
+        private final ResultSet target;
+        private final String sql;
+        private long rows;
+        private boolean counted;
+
+        CountedResultSet(ResultSet target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            String name = method.getName();
+            if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                rows++;
+            } else if (name.equals("close") && !counted) {
+                counted = true;
+                stats(sql).rows.addAndGet(rows);
+            }
+            return result;
+        }
+    }
+}
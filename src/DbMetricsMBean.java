@@ -0,0 +1,17 @@
+// JMX view of DbMetrics, registered as TourismBooklet:type=DbMetrics (see jconsole or VisualVM)
+public interface DbMetricsMBean {
+    long getStatementCount();
+
+    long getErrorCount();
+
+    long getSlowQueryCount();
+
+    // One line per distinct statement, slowest total time first
+    String[] getStatementStats();
+
+    String[] getRecentSlowQueries();
+
+    String getPoolStats();
+
+    void reset();
+}
@@ -0,0 +1,86 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Single-line renderer for long text cells. The text is cut to the column width with an ellipsis once per row
+// version and kept, so repainting or scrolling back never measures the whole string again; a JLabel would lay
+// out the full text on every paint. The key of a row changes whenever its text does (for places: id and version).
+public class DescriptionRenderer extends DefaultTableCellRenderer {
+    private static final String ELLIPSIS = "…";
+    private static final int MAX_CACHED = 4096;
+
+    public interface RowKey {
+        // Identifies the row's text, or returns -1 when it isn't known yet (the cell then isn't cached)
+        long keyFor(int modelRow);
+    }
+
+    private final RowKey rowKey;
+    private final Map<Long, String> fitted = new LinkedHashMap<Long, String>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+    private Font fittedFont;
+    private int fittedWidth = -1;
+
+    public DescriptionRenderer(RowKey rowKey) {
+        this.rowKey = rowKey;
+    }
+
+    // For places shown by a PlaceTableModel
+    public static long placeKey(Place place) {
+        return place == null ? -1 : (long) place.getId() << 32 | (place.getVersion() & 0xffffffffL);
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+                                                   int row, int column) {
+        super.getTableCellRendererComponent(table, null, isSelected, hasFocus, row, column);
+        String text = value == null ? "" : value.toString();
+        Insets insets = getInsets();
+        int width = table.getColumnModel().getColumn(column).getWidth() - insets.left - insets.right;
+        Font font = getFont();
+        if (width != fittedWidth || !font.equals(fittedFont)) {
+            fitted.clear();
+            fittedWidth = width;
+            fittedFont = font;
+        }
+        long key = text.isEmpty() ? -1 : rowKey.keyFor(table.convertRowIndexToModel(row));
+        String shown = key == -1 ? null : fitted.get(key);
+        if (shown == null) {
+            shown = fit(text, getFontMetrics(font), width);
+            if (key != -1) {
+                fitted.put(key, shown);
+            }
+        }
+        setText(shown);
+        // Previews of long descriptions already end in an ellipsis
+        setToolTipText(shown.endsWith(ELLIPSIS) ? "Select the row to read the whole description" : null);
+        return this;
+    }
+
+    // The longest prefix of the first line that fits in width pixels, ending in an ellipsis if anything was cut.
+    // Measures at most one cell's worth of characters however long the text is.
+    static String fit(String text, FontMetrics metrics, int width) {
+        int newline = text.indexOf('\n');
+        String line = newline >= 0 ? text.substring(0, newline) : text;
+        int available = width - metrics.stringWidth(ELLIPSIS);
+        int used = 0;
+        int cut = 0;
+        for (int i = 0; i < line.length(); ) {
+            int codePoint = line.codePointAt(i);
+            used += metrics.charWidth(codePoint);
+            if (used > width) {
+                return line.substring(0, cut) + ELLIPSIS;
+            }
+            i += Character.charCount(codePoint);
+            if (used <= available) {
+                cut = i;
+            }
+        }
+        return newline < 0 ? line : line.substring(0, cut) + ELLIPSIS;
+    }
+}
@@ -0,0 +1,359 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory spatial index over the places that have a location, for "what's near here" questions.
+// The globe is cut into a fixed grid of CELL_DEGREES cells (the same idea as a geohash prefix); each cell keeps
+// its places' ids and coordinates in flat arrays. Nearest-k searches rings of cells outwards from the query
+// point and stops as soon as no farther ring can hold anything closer; radius searches scan the cells under the
+// circle's bounding box. Built once from the store, then kept current through put()/remove() like SearchIndex,
+// including holding back changes that arrive while the build is scanning.
+public class GeoIndex {
+    static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double CELL_DEGREES = 0.1; // about 11 km north to south
+    private static final int LAT_CELLS = (int) Math.round(180 / CELL_DEGREES);
+    private static final int LON_CELLS = (int) Math.round(360 / CELL_DEGREES);
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private static final GeoIndex SHARED = new GeoIndex();
+
+    public static class Hit {
+        public final int id;
+        public final double distanceKm;
+
+        Hit(int id, double distanceKm) {
+            this.id = id;
+            this.distanceKm = distanceKm;
+        }
+
+        @Override
+        public String toString() {
+            return id + String.format(" (%.2f km)", distanceKm);
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializes builds and invalidation; a lock rather than a monitor so a virtual thread waiting out a long
+    // scan doesn't pin its carrier
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final Map<Integer, Cell> cells = new HashMap<>();
+    private final Map<Integer, Integer> cellOf = new HashMap<>(); // place id -> cell key
+    private final Map<Integer, Place> changedWhileBuilding = new LinkedHashMap<>(); // null: removed
+    private boolean building;
+    private volatile boolean built;
+
+    public static GeoIndex shared() {
+        return SHARED;
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    // Loads every place once; later changes arrive through put()/remove()
+    public void ensureBuilt() throws SQLException {
+        buildLock.lock();
+        try {
+            if (built) {
+                return;
+            }
+            setBuilding(true);
+            try {
+                PlaceStore.shared().scan(this::putScanned);
+                lock.writeLock().lock();
+                try {
+                    for (Map.Entry<Integer, Place> change : changedWhileBuilding.entrySet()) {
+                        if (change.getValue() == null) {
+                            removeLocked(change.getKey());
+                        } else {
+                            putLocked(change.getValue());
+                        }
+                    }
+                    building = false;
+                    built = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                setBuilding(false);
+            }
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private void setBuilding(boolean building) {
+        lock.writeLock().lock();
+        try {
+            this.building = building;
+            changedWhileBuilding.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // True if a change has to wait until the build has finished scanning
+    private boolean deferredLocked(int id, Place place) {
+        if (building) {
+            changedWhileBuilding.put(id, place);
+        }
+        return building;
+    }
+
+    // Drops everything so the next ensureBuilt() reloads, e.g. after a bulk import
+    public void invalidate() {
+        buildLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                cells.clear();
+                cellOf.clear();
+                built = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    // Adds or moves a place; a place without a location is taken out
+    public void put(Place place) {
+        lock.writeLock().lock();
+        try {
+            if (!deferredLocked(place.getId(), place)) {
+                putLocked(place);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (!deferredLocked(id, null)) {
+                removeLocked(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return cellOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The k places closest to the point, closest first
+    public List<Hit> nearest(double latitude, double longitude, int k) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Hit> best = new PriorityQueue<>(k + 1, Comparator.comparingDouble((Hit hit) -> hit.distanceKm).reversed());
+        lock.readLock().lock();
+        try {
+            int centerLat = latCell(latitude);
+            int centerLon = lonCell(longitude);
+            int scanned = 0;
+            for (int ring = 0; ring <= Math.max(LAT_CELLS, LON_CELLS / 2); ring++) {
+                // Nothing in this ring or beyond can beat the k-th best
+                if (best.size() == k && minRingDistanceKm(latitude, ring) > best.peek().distanceKm) {
+                    break;
+                }
+                // Sparse data: once the rings cover more cells than exist, looking at every cell is cheaper
+                if (scanned > cells.size()) {
+                    best.clear();
+                    for (Cell cell : cells.values()) {
+                        cell.collect(latitude, longitude, Double.MAX_VALUE, k, best);
+                    }
+                    break;
+                }
+                for (int dLat = -ring; dLat <= ring; dLat++) {
+                    int lat = centerLat + dLat;
+                    if (lat < 0 || lat >= LAT_CELLS) {
+                        continue;
+                    }
+                    boolean edgeRow = dLat == -ring || dLat == ring;
+                    for (int dLon = -ring; dLon <= ring; dLon += edgeRow ? 1 : 2 * Math.max(ring, 1)) {
+                        scanned++;
+                        Cell cell = cells.get(key(lat, Math.floorMod(centerLon + dLon, LON_CELLS)));
+                        if (cell != null) {
+                            cell.collect(latitude, longitude, Double.MAX_VALUE, k, best);
+                        }
+                        if (ring == 0) {
+                            break;
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return sorted(best);
+    }
+
+    // Places within radiusKm of the point, closest first, at most limit of them
+    public List<Hit> within(double latitude, double longitude, double radiusKm, int limit) {
+        PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.comparingDouble((Hit hit) -> hit.distanceKm).reversed());
+        lock.readLock().lock();
+        try {
+            double latSpan = radiusKm / KM_PER_DEGREE;
+            int fromLat = latCell(Math.max(-90, latitude - latSpan));
+            int toLat = latCell(Math.min(90, latitude + latSpan));
+            double widest = Math.max(Math.abs(latitude - latSpan), Math.abs(latitude + latSpan));
+            double lonSpan = widest >= 90 ? 180 : radiusKm / (KM_PER_DEGREE * Math.cos(Math.toRadians(widest)));
+            int lonCells = lonSpan >= 180 ? LON_CELLS : Math.min(LON_CELLS, 2 * (int) Math.ceil(lonSpan / CELL_DEGREES) + 1);
+            int fromLon = lonCell(longitude) - lonCells / 2;
+            if ((long) (toLat - fromLat + 1) * lonCells > cells.size()) {
+                for (Cell cell : cells.values()) {
+                    cell.collect(latitude, longitude, radiusKm, limit, best);
+                }
+            } else {
+                for (int lat = fromLat; lat <= toLat; lat++) {
+                    for (int i = 0; i < lonCells; i++) {
+                        Cell cell = cells.get(key(lat, Math.floorMod(fromLon + i, LON_CELLS)));
+                        if (cell != null) {
+                            cell.collect(latitude, longitude, radiusKm, limit, best);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return sorted(best);
+    }
+
+    // Great-circle distance
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // A lower bound on the distance from the point to any cell in the given ring, which starts `ring - 1` whole
+    // cells away: north to south that's a plain arc; east to west it's shortest at the latitude farthest from the
+    // equator that the ring reaches
+    private static double minRingDistanceKm(double latitude, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double gap = Math.toRadians((ring - 1) * CELL_DEGREES);
+        double farthestLat = Math.toRadians(Math.min(90, Math.abs(latitude) + (ring + 1) * CELL_DEGREES));
+        double eastWest = 2 * EARTH_RADIUS_KM * Math.asin(Math.cos(farthestLat) * Math.sin(Math.min(Math.PI, gap) / 2));
+        return Math.min(gap * EARTH_RADIUS_KM, eastWest);
+    }
+
+    // The build's own puts, which are never held back
+    private void putScanned(Place place) {
+        lock.writeLock().lock();
+        try {
+            putLocked(place);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putLocked(Place place) {
+        removeLocked(place.getId());
+        if (!place.hasLocation()) {
+            return;
+        }
+        int key = key(latCell(place.getLatitude()), lonCell(place.getLongitude()));
+        cells.computeIfAbsent(key, k -> new Cell()).add(place.getId(), place.getLatitude(), place.getLongitude());
+        cellOf.put(place.getId(), key);
+    }
+
+    private void removeLocked(int id) {
+        Integer key = cellOf.remove(id);
+        if (key != null) {
+            Cell cell = cells.get(key);
+            if (cell.remove(id) == 0) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private static List<Hit> sorted(PriorityQueue<Hit> best) {
+        List<Hit> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(hit -> hit.distanceKm));
+        return result;
+    }
+
+    private static int latCell(double latitude) {
+        return Math.min(LAT_CELLS - 1, (int) Math.floor((latitude + 90) / CELL_DEGREES));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / CELL_DEGREES), LON_CELLS);
+    }
+
+    private static int key(int latCell, int lonCell) {
+        return latCell * LON_CELLS + lonCell;
+    }
+
+    private static class Cell {
+        int size;
+        int[] ids = new int[4];
+        double[] lats = new double[4];
+        double[] lons = new double[4];
+
+        void add(int id, double lat, double lon) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                lats = Arrays.copyOf(lats, size * 2);
+                lons = Arrays.copyOf(lons, size * 2);
+            }
+            ids[size] = id;
+            lats[size] = lat;
+            lons[size] = lon;
+            size++;
+        }
+
+        // Swaps the last entry into the hole; returns the new size
+        int remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    lats[i] = lats[size];
+                    lons[i] = lons[size];
+                    break;
+                }
+            }
+            return size;
+        }
+
+        // Offers every place within maxKm to a max-heap holding the best `limit` so far
+        void collect(double lat, double lon, double maxKm, int limit, PriorityQueue<Hit> best) {
+            for (int i = 0; i < size; i++) {
+                double d = distanceKm(lat, lon, lats[i], lons[i]);
+                if (d > maxKm) {
+                    continue;
+                }
+                if (best.size() < limit) {
+                    best.add(new Hit(ids[i], d));
+                } else if (d < best.peek().distanceKm) {
+                    best.poll();
+                    best.add(new Hit(ids[i], d));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+// Offline maintenance job: renumbers place ids to 1..n in one transaction.
+// Normal deletes keep ids stable, so this only needs to run when someone wants gap-free ids. It locks the
+// whole table while it runs, so run it while no one is using the app. Every moved row gets a version
+// higher than any version before, so an edit from a client still showing the old ids can never match.
+// Photo links (PhotoStore) are keyed by place id too and are renumbered along with the rows.
+public class IdCompactor {
+    private static final int BATCH_SIZE = 1000;
+
+    public static int compact(Connection conn) throws SQLException, IOException {
+        PhotoStore photos = PhotoStore.shared();
+        photos.ensureLoaded();
+        Map<Integer, Integer> photoIds = new HashMap<>(); // old -> new id of every remaining place with photos
+        Path renumberedPhotos = null;
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        int moved = 0;
+
+        try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             ResultSet rs = stmt.executeQuery("SELECT id FROM place ORDER BY id");
+             PreparedStatement move = conn.prepareStatement("UPDATE place SET id = ? WHERE id = ?")) {
+
+            // Pass 1: park every row that changes at its negated new id, so no new id collides with an old one
+            int newId = 1;
+            while (rs.next()) {
+                int oldId = rs.getInt(1);
+                if (photos.cover(oldId) != null) {
+                    photoIds.put(oldId, newId);
+                }
+                if (oldId != newId) {
+                    move.setInt(1, -newId);
+                    move.setInt(2, oldId);
+                    move.addBatch();
+                    if (++moved % BATCH_SIZE == 0) {
+                        move.executeBatch();
+                    }
+                }
+                newId++;
+            }
+            if (moved % BATCH_SIZE != 0) {
+                move.executeBatch();
+            }
+
+            // Pass 2: flip all parked rows back in a single statement
+            if (moved > 0) {
+                try (PreparedStatement flip = conn.prepareStatement("UPDATE place SET id = -id, version = ? WHERE id < 0")) {
+                    flip.setInt(1, maxVersion(conn) + 1);
+                    flip.executeUpdate();
+                }
+                ChangeFeed.logBulk(conn);
+                // Written before the commit so nothing but a rename is left to fail once the ids have changed
+                renumberedPhotos = photos.prepareRenumbering(photoIds);
+            }
+            conn.commit();
+        } catch (SQLException | IOException ex) {
+            conn.rollback();
+            if (renumberedPhotos != null) {
+                Files.deleteIfExists(renumberedPhotos);
+            }
+            throw ex;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        if (moved > 0) {
+            try {
+                photos.applyRenumbering(renumberedPhotos, photoIds);
+            } catch (IOException e) {
+                throw new IOException("ids were renumbered but the photo index wasn't; move " + renumberedPhotos
+                        + " over it by hand", e);
+            }
+            resetAutoIncrement(conn);
+            SearchIndex.shared().invalidate();
+            GeoIndex.shared().invalidate();
+        }
+        return moved;
+    }
+
+    private static int maxVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM place")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void resetAutoIncrement(Connection conn) {
+        // MySQL clamps this to MAX(id) + 1; other engines simply don't support it
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE place AUTO_INCREMENT = 1");
+        } catch (SQLException e) {
+            System.err.println("⚠ Could not reset AUTO_INCREMENT: " + e.getMessage());
+        }
+    }
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int moved = compact(conn);
+            System.out.printf("✅ Compacted place ids: %d rows renumbered in %d ms%n",
+                    moved, (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException | IOException e) {
+            System.err.println("❌ Compaction failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
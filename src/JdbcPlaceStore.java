@@ -0,0 +1,395 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// PlaceStore on the place table of the configured JDBC database (MySQL tourism_db by default). Mutations
+// return the affected row so callers can update their views without reloading, and record themselves in the
+// ChangeFeed log in the same transaction.
+public class JdbcPlaceStore implements PlaceStore {
+    // Shared with SchemaMigrations, which checks with EXPLAIN that these use their indexes
+    static final String CITY_COUNTS = "SELECT city, COUNT(*) FROM place GROUP BY city ORDER BY city";
+    static final String CITY_PAGE = "SELECT id, place_name, city, version, latitude, longitude FROM place WHERE city = ? AND id > ? ORDER BY id LIMIT ?";
+    private static final String INSERT = "INSERT INTO place (place_name, city, description, latitude, longitude) VALUES (?, ?, ?, ?, ?)";
+
+    @Override
+    public int count(String city) throws SQLException {
+        String query = city == null ? "SELECT COUNT(*) FROM place" : "SELECT COUNT(*) FROM place WHERE city = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            if (city != null) {
+                pstmt.setString(1, city);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    // Places per city, served from idx_place_city
+    @Override
+    public Map<String, Integer> cityCounts() throws SQLException {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(CITY_COUNTS)) {
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return counts;
+    }
+
+    // Keyset page: the next `limit` rows after the given id, optionally within one city
+    @Override
+    public List<Place> pageAfter(int afterId, int limit, String city) throws SQLException {
+        String query = city == null
+                ? "SELECT id, place_name, city, version, latitude, longitude FROM place WHERE id > ? ORDER BY id LIMIT ?"
+                : CITY_PAGE;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            int i = 1;
+            if (city != null) {
+                pstmt.setString(i++, city);
+            }
+            pstmt.setInt(i++, afterId);
+            pstmt.setInt(i, limit);
+            return readSummaries(pstmt);
+        }
+    }
+
+    // Offset page, only used when jumping to a page whose starting id isn't known yet
+    @Override
+    public List<Place> pageAt(int offset, int limit, String city) throws SQLException {
+        String query = city == null
+                ? "SELECT id, place_name, city, version, latitude, longitude FROM place ORDER BY id LIMIT ? OFFSET ?"
+                : "SELECT id, place_name, city, version, latitude, longitude FROM place WHERE city = ? ORDER BY id LIMIT ? OFFSET ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            int i = 1;
+            if (city != null) {
+                pstmt.setString(i++, city);
+            }
+            pstmt.setInt(i++, limit);
+            pstmt.setInt(i, offset);
+            return readSummaries(pstmt);
+        }
+    }
+
+    // Rows for the given ids, in the same order (ids that no longer exist are skipped)
+    @Override
+    public List<Place> byIds(int[] ids, int from, int to) throws SQLException {
+        List<Place> places = new ArrayList<>();
+        if (from >= to) {
+            return places;
+        }
+        StringBuilder query = new StringBuilder("SELECT id, place_name, city, version, latitude, longitude FROM place WHERE id IN (");
+        for (int i = from; i < to; i++) {
+            query.append(i == from ? "?" : ",?");
+        }
+        query.append(')');
+        Map<Integer, Place> found = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            for (int i = from; i < to; i++) {
+                pstmt.setInt(i - from + 1, ids[i]);
+            }
+            for (Place place : readSummaries(pstmt)) {
+                found.put(place.getId(), place);
+            }
+        }
+        for (int i = from; i < to; i++) {
+            Place place = found.get(ids[i]);
+            if (place != null) {
+                places.add(place);
+            }
+        }
+        return places;
+    }
+
+    @Override
+    public Map<Integer, String> descriptions(int[] ids) throws SQLException {
+        Map<Integer, String> result = new HashMap<>();
+        if (ids.length == 0) {
+            return result;
+        }
+        StringBuilder query = new StringBuilder("SELECT id, description FROM place WHERE id IN (");
+        for (int i = 0; i < ids.length; i++) {
+            query.append(i == 0 ? "?" : ",?");
+        }
+        query.append(')');
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < ids.length; i++) {
+                pstmt.setInt(i + 1, ids[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    result.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Only the start of each description crosses the wire, however long the text is
+    @Override
+    public Map<Integer, String> descriptionPreviews(int[] ids, int maxChars) throws SQLException {
+        Map<Integer, String> result = new HashMap<>();
+        if (ids.length == 0) {
+            return result;
+        }
+        StringBuilder query = new StringBuilder("SELECT id, LEFT(description, ?) FROM place WHERE id IN (");
+        for (int i = 0; i < ids.length; i++) {
+            query.append(i == 0 ? "?" : ",?");
+        }
+        query.append(')');
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            pstmt.setInt(1, maxChars);
+            for (int i = 0; i < ids.length; i++) {
+                pstmt.setInt(i + 2, ids[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    result.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Complete rows, description included, for the given ids (ids that no longer exist are left out)
+    @Override
+    public Map<Integer, Place> places(int[] ids) throws SQLException {
+        Map<Integer, Place> result = new HashMap<>();
+        if (ids.length == 0) {
+            return result;
+        }
+        StringBuilder query = new StringBuilder("SELECT * FROM place WHERE id IN (");
+        for (int i = 0; i < ids.length; i++) {
+            query.append(i == 0 ? "?" : ",?");
+        }
+        query.append(')');
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < ids.length; i++) {
+                pstmt.setInt(i + 1, ids[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Place place = readPlace(rs);
+                    result.put(place.getId(), place);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Streams every place, description included, without holding the table in memory
+    @Override
+    public void scan(Consumer<Place> consumer) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(streamingFetchSize(conn));
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT id, place_name, city, description, version, latitude, longitude FROM place ORDER BY id")) {
+                while (rs.next()) {
+                    consumer.accept(readPlace(rs));
+                }
+            }
+        }
+    }
+
+    @Override
+    public Place latest() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM place ORDER BY id DESC LIMIT 1")) {
+            if (rs.next()) {
+                return readPlace(rs);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public Place insert(String placeName, String city, String description, double latitude, double longitude) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            conn.setAutoCommit(false);
+            pstmt.setString(1, placeName);
+            pstmt.setString(2, city);
+            pstmt.setString(3, description);
+            setCoordinate(pstmt, 4, latitude);
+            setCoordinate(pstmt, 5, longitude);
+            pstmt.executeUpdate();
+            int id;
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                id = keys.next() ? keys.getInt(1) : 0;
+            }
+            ChangeFeed.log(conn, id, ChangeFeed.INSERT);
+            conn.commit();
+            return new Place(id, placeName, city, description, 0, latitude, longitude);
+        }
+    }
+
+    // One batch and one transaction; the change feed gets a single bulk entry rather than one per row
+    @Override
+    public int insertAll(List<String[]> rows) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT)) {
+            conn.setAutoCommit(false);
+            for (String[] row : rows) {
+                pstmt.setString(1, row[0]);
+                pstmt.setString(2, row[1]);
+                pstmt.setString(3, row[2]);
+                pstmt.setNull(4, Types.DOUBLE);
+                pstmt.setNull(5, Types.DOUBLE);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            ChangeFeed.logBulk(conn);
+            conn.commit();
+            return rows.size();
+        }
+    }
+
+    // Applies the edit only if the row is still at the version the caller saw. Returns the updated row, or
+    // null if the place no longer exists; throws PlaceConflictException if someone else changed it first.
+    @Override
+    public Place updateDescription(Place seen, String description) throws SQLException {
+        String updateQuery = "UPDATE place SET description=?, version=version+1 WHERE id=? AND version=?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
+            conn.setAutoCommit(false);
+            pstmt.setString(1, description);
+            pstmt.setInt(2, seen.getId());
+            pstmt.setInt(3, seen.getVersion());
+            int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                ChangeFeed.log(conn, seen.getId(), ChangeFeed.UPDATE);
+            }
+            Place place = find(conn, seen.getId());
+            conn.commit();
+            if (affectedRows == 0) {
+                return conflictOrGone(place);
+            }
+            return place;
+        }
+    }
+
+    @Override
+    public Place find(int id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return find(conn, id);
+        }
+    }
+
+    private static Place find(Connection conn, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM place WHERE id=?")) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return readPlace(rs);
+                }
+                return null;
+            }
+        }
+    }
+
+    // Deletes the row only if it is still at the version the caller saw. Returns false if the place no longer
+    // exists; throws PlaceConflictException if someone else changed it first. Ids are never renumbered here,
+    // other clients may still be showing them (IdCompactor does that offline).
+    @Override
+    public boolean delete(Place seen) throws SQLException {
+        String deleteQuery = "DELETE FROM place WHERE id=? AND version=?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(deleteQuery)) {
+            conn.setAutoCommit(false);
+            pstmt.setInt(1, seen.getId());
+            pstmt.setInt(2, seen.getVersion());
+            if (pstmt.executeUpdate() == 0) {
+                Place current = find(conn, seen.getId());
+                conn.commit();
+                conflictOrGone(current);
+                return false;
+            }
+            ChangeFeed.log(conn, seen.getId(), ChangeFeed.DELETE);
+            conn.commit();
+            return true;
+        }
+    }
+
+    // A conditional write matched nothing: either the row is gone (null) or it moved on to a newer version
+    private static Place conflictOrGone(Place current) throws PlaceConflictException {
+        if (current != null) {
+            throw new PlaceConflictException(current);
+        }
+        return null;
+    }
+
+    // Loads the driver, opens the pool's idle connections, applies schema migrations and starts the change feed
+    @Override
+    public void warmUp() throws SQLException {
+        String driver = DatabaseConnection.getSetting("db.driver", "com.mysql.cj.jdbc.Driver");
+        try {
+            Class.forName(driver);
+        } catch (ClassNotFoundException e) {
+            System.out.println("❌ JDBC Driver " + driver + " Not Found!");
+        }
+        DatabaseConnection.getPool().warmUp();
+        if (DatabaseConnection.getBoolean("schema.autoMigrate", true)) {
+            SchemaMigrations.migrate();
+        }
+        if (DatabaseConnection.getBoolean("feed.enabled", true)) {
+            ChangeFeed.shared().start();
+        }
+    }
+
+    // Connector/J only streams row by row with fetch size Integer.MIN_VALUE; other drivers take a real size
+    static int streamingFetchSize(Connection conn) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        if (product != null && product.toLowerCase().contains("mysql")) {
+            return Integer.MIN_VALUE;
+        }
+        return DatabaseConnection.getInt("export.fetchSize", 1000);
+    }
+
+    private static Place readPlace(ResultSet rs) throws SQLException {
+        return new Place(rs.getInt("id"), rs.getString("place_name"), rs.getString("city"),
+                rs.getString("description"), rs.getInt("version"), coordinate(rs, "latitude"), coordinate(rs, "longitude"));
+    }
+
+    private static double coordinate(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    private static void setCoordinate(PreparedStatement pstmt, int index, double value) throws SQLException {
+        if (Double.isNaN(value)) {
+            pstmt.setNull(index, Types.DOUBLE);
+        } else {
+            pstmt.setDouble(index, value);
+        }
+    }
+
+    private static List<Place> readSummaries(PreparedStatement pstmt) throws SQLException {
+        List<Place> places = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                places.add(new Place(rs.getInt("id"), rs.getString("place_name"), rs.getString("city"), null, rs.getInt("version"),
+                        coordinate(rs, "latitude"), coordinate(rs, "longitude")));
+            }
+        }
+        return places;
+    }
+}
@@ -0,0 +1,551 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Embedded PlaceStore for running without a database server, e.g. on a laptop in the field. Every change is
+// appended to one local file, and all places are held in memory in a CompactCatalogue (sorted by id, with a
+// per-city index), so reads never touch the disk. Opening the file replays it; a last write torn by a crash is cut off. When superseded
+// records outnumber the live places, the file is rewritten with just the live ones. A record that is damaged with
+// more data after it is not cut off silently: everything from there on is copied aside to a .corrupt file first.
+//
+// File layout: "TBPL", format version, next id; then records of [length][CRC32][payload], where the payload is
+// op ('P'ut or 'D'elete), id, version and, for puts, the name, city and description as length-prefixed UTF-8,
+// followed by latitude and longitude as doubles for places that have a location. Every record of a multi-record
+// write but the last has BATCH_CONTINUES set in its op, so replay applies a write all or nothing (version 1 files
+// have no batches and read the same).
+public class LogPlaceStore implements PlaceStore {
+    private static final int MAGIC = 0x5442504C; // "TBPL"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 12;
+    private static final byte PUT = 'P';
+    private static final byte DELETE = 'D';
+    private static final int BATCH_CONTINUES = 0x80;
+    private static final int MIN_RECORDS_TO_COMPACT = 1000;
+    private static final int SCAN_CHUNK = 1024;
+
+    private final Path path;
+    private final boolean sync;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CompactCatalogue catalogue = new CompactCatalogue();
+    private FileChannel channel;
+    private int nextId = 1;
+    private long records; // records in the file, live or superseded
+    private long damagedAt = -1; // set by replay when a record mid-file can't be read
+
+    public LogPlaceStore(Path path, boolean sync) throws IOException {
+        this.path = path;
+        this.sync = sync;
+        long end = Files.exists(path) && Files.size(path) > 0 ? replay() : create();
+        catalogue.trim();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > end) {
+            if (damagedAt >= 0) {
+                Path aside = path.resolveSibling(path.getFileName() + ".corrupt-" + System.currentTimeMillis());
+                try (FileChannel out = FileChannel.open(aside, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    channel.transferTo(end, channel.size() - end, out);
+                    out.force(true);
+                }
+                System.err.println("❌ " + path + " is damaged at byte " + damagedAt + ": the " + (channel.size() - end)
+                        + " bytes from byte " + end + " on were moved to " + aside + " and the places in them are missing");
+            } else {
+                System.err.println("⚠ Dropped a write torn by a crash (" + (channel.size() - end) + " bytes) at the end of " + path);
+            }
+            channel.truncate(end);
+        }
+        channel.position(end);
+        if (records >= MIN_RECORDS_TO_COMPACT && records > 2L * catalogue.size()) {
+            compact();
+        }
+    }
+
+    // Opens the store file named in the config, closing it again when the JVM exits
+    static LogPlaceStore open(String file) {
+        try {
+            LogPlaceStore store = new LogPlaceStore(Paths.get(file), DatabaseConnection.getBoolean("store.sync", true));
+            Runtime.getRuntime().addShutdownHook(new Thread(store::close, "place-store-shutdown"));
+            return store;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open place store " + file, e);
+        }
+    }
+
+    @Override
+    public int count(String city) {
+        lock.readLock().lock();
+        try {
+            return catalogue.count(city);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Integer> cityCounts() {
+        lock.readLock().lock();
+        try {
+            return catalogue.cityCounts();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Place> pageAfter(int afterId, int limit, String city) {
+        lock.readLock().lock();
+        try {
+            return catalogue.pageAfter(afterId, limit, city, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Place> pageAt(int offset, int limit, String city) {
+        lock.readLock().lock();
+        try {
+            return catalogue.pageAt(offset, limit, city);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Place> byIds(int[] ids, int from, int to) {
+        lock.readLock().lock();
+        try {
+            List<Place> result = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                Place place = catalogue.summary(ids[i]);
+                if (place != null) {
+                    result.add(place);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Integer, String> descriptions(int[] ids) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, String> result = new HashMap<>();
+            for (int id : ids) {
+                String description = catalogue.description(id);
+                if (description != null) {
+                    result.put(id, description);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Integer, String> descriptionPreviews(int[] ids, int maxChars) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, String> result = new HashMap<>();
+            for (int id : ids) {
+                String preview = catalogue.descriptionPreview(id, maxChars);
+                if (preview != null) {
+                    result.put(id, preview);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Integer, Place> places(int[] ids) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Place> result = new HashMap<>();
+            for (int id : ids) {
+                Place place = catalogue.get(id);
+                if (place != null) {
+                    result.put(id, place);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Decodes a chunk at a time outside the lock, so a slow consumer (an export) doesn't hold up writers
+    @Override
+    public void scan(Consumer<Place> consumer) {
+        int afterId = Integer.MIN_VALUE;
+        while (true) {
+            List<Place> chunk;
+            lock.readLock().lock();
+            try {
+                chunk = catalogue.pageAfter(afterId, SCAN_CHUNK, null, true);
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (chunk.isEmpty()) {
+                return;
+            }
+            for (Place place : chunk) {
+                consumer.accept(place);
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    @Override
+    public Place latest() {
+        lock.readLock().lock();
+        try {
+            return catalogue.last();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Place find(int id) {
+        lock.readLock().lock();
+        try {
+            return catalogue.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Place insert(String placeName, String city, String description, double latitude, double longitude) throws SQLException {
+        if (placeName == null || city == null) {
+            throw new SQLException("place_name and city are required", "23000");
+        }
+        lock.writeLock().lock();
+        try {
+            Place place = new Place(nextId, placeName, city, description, 0, latitude, longitude);
+            append(PUT, Collections.singletonList(place));
+            nextId++;
+            catalogue.put(place);
+            return place;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int insertAll(List<String[]> rows) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            return insertLocked(rows).size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Place> insertLocked(List<String[]> rows) throws SQLException {
+        List<Place> added = new ArrayList<>(rows.size());
+        for (String[] row : rows) {
+            // Same constraint as the place table
+            if (row[0] == null || row[1] == null) {
+                throw new SQLException("place_name and city are required", "23000");
+            }
+            added.add(new Place(nextId + added.size(), row[0], row[1], row[2]));
+        }
+        append(PUT, added);
+        nextId += added.size();
+        for (Place place : added) {
+            catalogue.put(place);
+        }
+        return added;
+    }
+
+    @Override
+    public Place updateDescription(Place seen, String description) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            Place current = current(seen);
+            if (current == null) {
+                return null;
+            }
+            Place updated = new Place(current.getId(), current.getPlaceName(), current.getCity(), description,
+                    current.getVersion() + 1, current.getLatitude(), current.getLongitude());
+            append(PUT, Collections.singletonList(updated));
+            catalogue.put(updated);
+            return updated;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(Place seen) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            Place current = current(seen);
+            if (current == null) {
+                return false;
+            }
+            append(DELETE, Collections.singletonList(current));
+            catalogue.remove(current.getId());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Everything was loaded when the store was opened
+    @Override
+    public void warmUp() {
+    }
+
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (channel.isOpen()) {
+                channel.force(true);
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ Could not close " + path + ": " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The stored place the caller's copy refers to: null if it was deleted, a conflict if it has moved on
+    private Place current(Place seen) throws PlaceConflictException {
+        Place current = catalogue.get(seen.getId());
+        if (current != null && current.getVersion() != seen.getVersion()) {
+            throw new PlaceConflictException(current);
+        }
+        return current;
+    }
+
+    // Writes the records in one go; if that fails the file is cut back so no partial record is left behind
+    private void append(byte op, List<Place> changed) throws SQLException {
+        long start = -1;
+        try {
+            start = channel.position();
+            ByteBuffer buffer = ByteBuffer.wrap(encode(op, changed));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+            records += changed.size();
+        } catch (IOException e) {
+            try {
+                if (start >= 0) {
+                    channel.truncate(start);
+                    channel.position(start);
+                }
+            } catch (IOException ignored) {
+                // Replay cuts off the torn record on the next start
+            }
+            throw new SQLException("Could not write to " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] encode(byte op, List<Place> changed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 * changed.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(128);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < changed.size(); i++) {
+            Place place = changed.get(i);
+            payloadBytes.reset();
+            payload.writeByte(i < changed.size() - 1 ? op | BATCH_CONTINUES : op);
+            payload.writeInt(place.getId());
+            payload.writeInt(place.getVersion());
+            if (op == PUT) {
+                writeString(payload, place.getPlaceName());
+                writeString(payload, place.getCity());
+                writeString(payload, place.getDescription());
+                if (place.hasLocation()) {
+                    payload.writeDouble(place.getLatitude());
+                    payload.writeDouble(place.getLongitude());
+                }
+            }
+            payload.flush();
+            crc.reset();
+            crc.update(payloadBytes.toByteArray());
+            out.writeInt(payloadBytes.size());
+            out.writeInt((int) crc.getValue());
+            payloadBytes.writeTo(out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private long create() throws IOException {
+        writeHeader(path, 1);
+        return HEADER_BYTES;
+    }
+
+    private static void writeHeader(Path file, int nextId) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(nextId);
+        }
+    }
+
+    // Loads every complete write and returns the offset just past the last one. Stops at the first record that
+    // can't be read: if it runs to the end of the file (or only zeros follow) it is a write torn by a crash,
+    // otherwise damagedAt is set so the constructor keeps the rest of the file.
+    private long replay() throws IOException {
+        long size = Files.size(path);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            int version;
+            if (size < HEADER_BYTES || in.readInt() != MAGIC || (version = in.readInt()) < 1 || version > FORMAT_VERSION) {
+                throw new IOException(path + " is not a place store file");
+            }
+            nextId = in.readInt();
+            long end = HEADER_BYTES;
+            long offset = HEADER_BYTES;
+            List<byte[]> batch = new ArrayList<>();
+            CRC32 crc = new CRC32();
+            while (size - offset >= 8) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || length > size - offset - 8) {
+                    break; // runs past the end of the file
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if (length < 9 || (int) crc.getValue() != checksum) {
+                    if (offset + 8 + length < size && !onlyZerosFrom(offset)) {
+                        damagedAt = offset;
+                    }
+                    break;
+                }
+                offset += 8 + length;
+                batch.add(payload);
+                if ((payload[0] & BATCH_CONTINUES) == 0) {
+                    for (byte[] record : batch) {
+                        apply(new DataInputStream(new ByteArrayInputStream(record)));
+                    }
+                    records += batch.size();
+                    batch.clear();
+                    end = offset;
+                }
+            }
+            if (version < FORMAT_VERSION) {
+                upgradeHeader();
+            }
+            return end;
+        }
+    }
+
+    // File systems can leave a crashed write as a run of zeros
+    private boolean onlyZerosFrom(long offset) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            in.position(offset);
+            while (in.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    if (buffer.get() != 0) {
+                        return false;
+                    }
+                }
+                buffer.clear();
+            }
+            return true;
+        }
+    }
+
+    // Batches are appended from now on, which version 1 readers would misread
+    private void upgradeHeader() throws IOException {
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.allocate(4).putInt(0, FORMAT_VERSION), 4);
+        }
+    }
+
+    private void apply(DataInputStream record) throws IOException {
+        byte op = (byte) (record.readByte() & ~BATCH_CONTINUES);
+        int id = record.readInt();
+        int version = record.readInt();
+        if (op == PUT) {
+            String placeName = readString(record);
+            String city = readString(record);
+            String description = readString(record);
+            boolean located = record.available() > 0;
+            catalogue.put(new Place(id, placeName, city, description, version,
+                    located ? record.readDouble() : Double.NaN, located ? record.readDouble() : Double.NaN));
+        } else {
+            catalogue.remove(id);
+        }
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    // Rewrites the file with only the live places, then swaps it in
+    private void compact() throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        writeHeader(tmp, nextId);
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            int afterId = Integer.MIN_VALUE;
+            List<Place> batch;
+            while (!(batch = catalogue.pageAfter(afterId, SCAN_CHUNK, null, true)).isEmpty()) {
+                out.write(ByteBuffer.wrap(encode(PUT, batch)));
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        records = catalogue.size();
+    }
+}
@@ -0,0 +1,121 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.JTableHeader;
+import java.awt.*;
+import java.util.List;
+
+// "What's near here": the places closest to a point, from the GeoIndex. The first search loads the index;
+// after that answers come from memory.
+public class NearbyPage extends JPanel implements ScreenManager.Screen {
+    private static final int RESULTS = 50;
+
+    private final JTextField latitudeField = new JTextField(10);
+    private final JTextField longitudeField = new JTextField(10);
+    private final JTextField radiusField = new JTextField(6);
+    private final JLabel status = new JLabel(" ");
+    private final DefaultTableModel resultsModel = new DefaultTableModel(new String[]{"No.", "Place Name", "City", "Distance (km)"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final AsyncDb db;
+
+    public NearbyPage() {
+        setLayout(new BorderLayout());
+
+        JLabel mainHeader = new JLabel("Places near you", JLabel.CENTER);
+        mainHeader.setFont(new Font("Serif", Font.BOLD, 18));
+        mainHeader.setForeground(new Color(0, 102, 204));
+
+        JButton findButton = new JButton("📍 Find");
+        JPanel searchPanel = new JPanel();
+        searchPanel.add(new JLabel("Latitude:"));
+        searchPanel.add(latitudeField);
+        searchPanel.add(new JLabel("Longitude:"));
+        searchPanel.add(longitudeField);
+        searchPanel.add(new JLabel("Within km (blank for any):"));
+        searchPanel.add(radiusField);
+        searchPanel.add(findButton);
+
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.add(mainHeader, BorderLayout.NORTH);
+        topPanel.add(searchPanel, BorderLayout.CENTER);
+        topPanel.add(status, BorderLayout.SOUTH);
+        add(topPanel, BorderLayout.NORTH);
+
+        JTable table = new JTable(resultsModel);
+        table.setRowHeight(30);
+        JTableHeader header = table.getTableHeader();
+        header.setBackground(new Color(0, 102, 204));
+        header.setForeground(Color.WHITE);
+        header.setFont(new Font("Serif", Font.BOLD, 16));
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        db = new AsyncDb(progressBar);
+
+        JPanel buttonPanel = new JPanel();
+        JButton placesButton = new JButton("All Places");
+        JButton backButton = new JButton("Back to Home");
+        buttonPanel.add(placesButton);
+        buttonPanel.add(backButton);
+        buttonPanel.add(progressBar);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        findButton.addActionListener(e -> findNearby());
+        latitudeField.addActionListener(e -> findNearby());
+        longitudeField.addActionListener(e -> findNearby());
+        radiusField.addActionListener(e -> findNearby());
+        placesButton.addActionListener(e -> ScreenManager.get().show(ScreenManager.ScreenId.TABLE));
+        backButton.addActionListener(e -> ScreenManager.get().show(ScreenManager.ScreenId.HOME));
+    }
+
+    @Override
+    public void onHide() {
+        db.cancel("nearby");
+    }
+
+    private void findNearby() {
+        double latitude;
+        double longitude;
+        double radiusKm;
+        try {
+            latitude = Double.parseDouble(latitudeField.getText().trim());
+            longitude = Double.parseDouble(longitudeField.getText().trim());
+            String radius = radiusField.getText().trim();
+            radiusKm = radius.isEmpty() ? 0 : Double.parseDouble(radius);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "⚠ Enter a latitude and longitude in degrees, e.g. 26.9124 and 75.7873",
+                    "Warning", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        status.setText(GeoIndex.shared().isBuilt() ? "Searching…" : "⏳ Loading place locations…");
+        long start = System.nanoTime();
+        db.submitLatest("nearby", () -> PlaceService.shared().nearby(latitude, longitude, radiusKm, RESULTS),
+                results -> showResults(results, System.nanoTime() - start), ex -> {
+            status.setText(" ");
+            if (ex instanceof IllegalArgumentException) {
+                JOptionPane.showMessageDialog(this, "⚠ " + ex.getMessage(), "Warning", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Error finding nearby places: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void showResults(List<PlaceService.Nearby> results, long nanos) {
+        resultsModel.setRowCount(0);
+        for (PlaceService.Nearby nearby : results) {
+            resultsModel.addRow(new Object[]{resultsModel.getRowCount() + 1, nearby.place.getPlaceName(),
+                    nearby.place.getCity(), String.format("%.2f", nearby.distanceKm)});
+        }
+        status.setText(results.isEmpty() ? "ℹ️ No located places found."
+                : String.format("%d places, %.1f ms (%d places indexed)", results.size(), nanos / 1e6, GeoIndex.shared().size()));
+    }
+
+    public static void main(String[] args) {
+        ScreenManager.launch(ScreenManager.ScreenId.NEARBY);
+    }
+}
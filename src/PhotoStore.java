@@ -0,0 +1,284 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Place photos, kept on this machine. Every photo is stored once under the SHA-256 of its bytes
+// (blobs/ab/abcd…), so the same picture attached twice takes no extra space; a small PNG thumbnail of it is made
+// on a background pool as soon as it arrives (thumbs/ab/abcd….png). Which photos belong to which place is an
+// append-only index file next to the blobs: the photos only exist on this machine, so the database has no use
+// for the links. Load the index with ensureLoaded() (off the EDT) before asking for covers.
+public class PhotoStore {
+    private static final String INDEX_FILE = "photos.idx";
+    private static PhotoStore shared;
+
+    private final Path blobs;
+    private final Path thumbs;
+    private final Path index;
+    private final int thumbnailSize;
+    private final ExecutorService pool;
+    private final Map<Integer, List<String>> photosByPlace = new HashMap<>();
+    private volatile boolean loaded;
+
+    public PhotoStore(Path dir, int thumbnailSize, int threads) {
+        this.blobs = dir.resolve("blobs");
+        this.thumbs = dir.resolve("thumbs");
+        this.index = dir.resolve(INDEX_FILE);
+        this.thumbnailSize = thumbnailSize;
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "photo-thumbnails");
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+    }
+
+    public static synchronized PhotoStore shared() {
+        if (shared == null) {
+            int threads = DatabaseConnection.getInt("photos.thumbnailThreads", 0);
+            shared = new PhotoStore(Paths.get(DatabaseConnection.getSetting("photos.dir", "photos")),
+                    DatabaseConnection.getInt("photos.thumbnailSize", 48),
+                    threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        }
+        return shared;
+    }
+
+    public int getThumbnailSize() {
+        return thumbnailSize;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Reads the index once; blocks, so call it off the EDT
+    public synchronized void ensureLoaded() throws IOException {
+        if (loaded) {
+            return;
+        }
+        if (Files.exists(index)) {
+            try (BufferedReader in = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    // A line cut short by a crash is skipped
+                    if (tab > 0 && line.length() - tab - 1 == 64) {
+                        link(Integer.parseInt(line.substring(0, tab)), line.substring(tab + 1));
+                    }
+                }
+            }
+        }
+        loaded = true;
+    }
+
+    // Hash of the place's first photo, or null if it has none (or the index isn't loaded yet). Cheap enough
+    // for a cell renderer.
+    public synchronized String cover(int placeId) {
+        List<String> photos = photosByPlace.get(placeId);
+        return photos == null ? null : photos.get(0);
+    }
+
+    public synchronized List<String> photos(int placeId) {
+        List<String> photos = photosByPlace.get(placeId);
+        return photos == null ? Collections.emptyList() : new ArrayList<>(photos);
+    }
+
+    // Copies the photo into the store and links it to the place. Blocks on the copy; the thumbnail is made on the
+    // background pool, and the returned future completes with the photo's hash once the thumbnail is on disk.
+    public CompletableFuture<String> attach(int placeId, File photo) throws IOException {
+        ensureLoaded();
+        String hash = store(photo);
+        synchronized (this) {
+            if (!photos(placeId).contains(hash)) {
+                try (Writer out = Files.newBufferedWriter(index, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND)) {
+                    out.write(placeId + "\t" + hash + "\n");
+                }
+                link(placeId, hash);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                thumbnailFile(hash);
+                return hash;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, pool);
+    }
+
+    // The photo's thumbnail, read on the background pool (and made first if it doesn't exist yet)
+    public CompletableFuture<BufferedImage> thumbnail(String hash) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return ImageIO.read(thumbnailFile(hash).toFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, pool);
+    }
+
+    public Path blobFile(String hash) {
+        return blobs.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    // Makes the thumbnail if it is missing; two threads racing on the same photo both write the same bytes
+    Path thumbnailFile(String hash) throws IOException {
+        Path file = thumbs.resolve(hash.substring(0, 2)).resolve(hash + ".png");
+        if (Files.exists(file)) {
+            return file;
+        }
+        BufferedImage thumbnail = scale(readSubsampled(blobFile(hash), thumbnailSize), thumbnailSize);
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), hash, ".tmp");
+        try {
+            ImageIO.write(thumbnail, "png", tmp.toFile());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return file;
+    }
+
+    // For IdCompactor: writes the index as it will be once place ids are renumbered (old id -> new id, for every
+    // place that is still there) to a file beside the current one, which stays as it is. Links of places missing
+    // from the map are dropped, so a deleted place's photos can't turn up on the place that inherits its id.
+    synchronized Path prepareRenumbering(Map<Integer, Integer> newIds) throws IOException {
+        ensureLoaded();
+        Files.createDirectories(index.getParent());
+        Path prepared = Files.createTempFile(index.getParent(), INDEX_FILE, ".tmp");
+        try (Writer out = Files.newBufferedWriter(prepared, StandardCharsets.UTF_8)) {
+            for (Map.Entry<Integer, List<String>> entry : photosByPlace.entrySet()) {
+                Integer newId = newIds.get(entry.getKey());
+                if (newId != null) {
+                    for (String hash : entry.getValue()) {
+                        out.write(newId + "\t" + hash + "\n");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(prepared);
+            throw e;
+        }
+        return prepared;
+    }
+
+    // Puts an index from prepareRenumbering in place, once the ids have really changed
+    synchronized void applyRenumbering(Path prepared, Map<Integer, Integer> newIds) throws IOException {
+        Files.move(prepared, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Map<Integer, List<String>> renumbered = new HashMap<>();
+        for (Map.Entry<Integer, List<String>> entry : photosByPlace.entrySet()) {
+            Integer newId = newIds.get(entry.getKey());
+            if (newId != null) {
+                renumbered.put(newId, entry.getValue());
+            }
+        }
+        photosByPlace.clear();
+        photosByPlace.putAll(renumbered);
+    }
+
+    private synchronized void link(int placeId, String hash) {
+        photosByPlace.computeIfAbsent(placeId, id -> new ArrayList<>(1)).add(hash);
+    }
+
+    // Hashes while copying into a temporary file, then moves it to its content address
+    private String store(File photo) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        if (!isImage(photo)) {
+            throw new IOException(photo.getName() + " is not an image this app can read");
+        }
+        Files.createDirectories(blobs);
+        Path tmp = Files.createTempFile(blobs, "upload", ".tmp");
+        try {
+            try (InputStream in = new DigestInputStream(Files.newInputStream(photo.toPath()), digest);
+                 OutputStream out = Files.newOutputStream(tmp)) {
+                in.transferTo(out);
+            }
+            StringBuilder hash = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hash.append(String.format("%02x", b));
+            }
+            Path file = blobFile(hash.toString());
+            if (!Files.exists(file)) {
+                Files.createDirectories(file.getParent());
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return hash.toString();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Looks at the header only
+    private static boolean isImage(File file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            return in != null && ImageIO.getImageReaders(in).hasNext();
+        }
+    }
+
+    // Decodes only every n-th pixel of a big photo, enough for a thumbnail of the given size
+    private static BufferedImage readSubsampled(Path file, int size) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? Collections.emptyIterator() : ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Can't read photo " + file);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int step = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / (size * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Fits the image in a size x size box, keeping its proportions
+    private static BufferedImage scale(BufferedImage image, int size) {
+        double factor = Math.min(1, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+}
@@ -0,0 +1,88 @@
+public class Place {
+    private final int id;
+    private final String placeName;
+    private final String city;
+    private final String description;
+    private final int version;
+    private final double latitude; // degrees; NaN when the place hasn't been located
+    private final double longitude;
+
+    // A place as first inserted, before any edit
+    public Place(int id, String placeName, String city, String description) {
+        this(id, placeName, city, description, 0);
+    }
+
+    public Place(int id, String placeName, String city, String description, int version) {
+        this(id, placeName, city, description, version, Double.NaN, Double.NaN);
+    }
+
+    public Place(int id, String placeName, String city, String description, int version, double latitude, double longitude) {
+        this.id = id;
+        this.placeName = placeName;
+        this.city = city;
+        this.description = description;
+        this.version = version;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    // The rule the Add Place form enforces: every field is required
+    public static boolean isComplete(String placeName, String city, String description) {
+        return !isBlank(placeName) && !isBlank(city) && !isBlank(description);
+    }
+
+    // Either no location at all (both NaN) or a real one
+    public static boolean isValidLocation(double latitude, double longitude) {
+        if (Double.isNaN(latitude) && Double.isNaN(longitude)) {
+            return true;
+        }
+        return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getPlaceName() {
+        return placeName;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    // May be null when the row was loaded without its description
+    public String getDescription() {
+        return description;
+    }
+
+    // Bumped by every edit; writes only succeed against the version they were based on
+    public int getVersion() {
+        return version;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public boolean hasLocation() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    public Place withDescription(String newDescription) {
+        return new Place(id, placeName, city, newDescription, version, latitude, longitude);
+    }
+
+    @Override
+    public String toString() {
+        return "Place[" + id + ", " + placeName + ", " + city + ", v" + version + "]";
+    }
+}
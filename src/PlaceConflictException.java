@@ -0,0 +1,16 @@
+import java.sql.SQLException;
+
+// Thrown when an edit or delete was based on an older version of a place than the one in the database,
+// i.e. someone else changed it in the meantime. Carries the current row so the user can decide again.
+public class PlaceConflictException extends SQLException {
+    private final Place current;
+
+    public PlaceConflictException(Place current) {
+        super("Place " + current.getId() + " was changed by someone else (now version " + current.getVersion() + ")", "40001");
+        this.current = current;
+    }
+
+    public Place getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Locale;
+
+// Streams every place to a file with constant memory: PlaceStore.scan (a forward-only result set, streamed
+// row by row on MySQL) feeds a single reusable buffer that is flushed to a FileChannel.
+public class PlaceExporter {
+
+    public enum Format {
+        CSV, JSONL, COLUMNAR;
+
+        public static Format forFile(File file) {
+            String name = file.getName().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".jsonl")) {
+                return JSONL;
+            }
+            if (name.endsWith(ColumnarPlaceFile.EXTENSION)) {
+                return COLUMNAR;
+            }
+            return CSV;
+        }
+    }
+
+    public interface Sink extends AutoCloseable {
+        void write(int id, String placeName, String city, String description) throws IOException;
+
+        @Override
+        void close() throws IOException;
+
+        // Called instead of close() when the export failed part-way
+        default void abort() {
+            try {
+                close();
+            } catch (IOException e) {
+                System.err.println("⚠ Could not close the export: " + e.getMessage());
+            }
+        }
+    }
+
+    public static long export(File output, Format format) throws SQLException, IOException {
+        long[] rows = {0};
+        Sink sink = open(output, format);
+        try {
+            PlaceStore.shared().scan(place -> {
+                try {
+                    sink.write(place.getId(), place.getPlaceName(), place.getCity(), place.getDescription());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            sink.abort();
+            throw e.getCause();
+        } catch (SQLException | RuntimeException e) {
+            sink.abort();
+            throw e;
+        }
+        sink.close();
+        return rows[0];
+    }
+
+    public static Sink open(File output, Format format) throws IOException {
+        switch (format) {
+            case JSONL:
+                return new JsonLinesSink(output);
+            case COLUMNAR:
+                return new ColumnarPlaceFile.Writer(output);
+            default:
+                return new CsvSink(output);
+        }
+    }
+
+    // Buffers UTF-8 text and writes it to the channel in large chunks
+    abstract static class TextSink implements Sink {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        protected final StringBuilder line = new StringBuilder(256);
+
+        TextSink(File output) throws IOException {
+            channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        protected void flushLine() throws IOException {
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            line.setLength(0);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    static class CsvSink extends TextSink {
+        CsvSink(File output) throws IOException {
+            super(output);
+            line.append("id,place_name,city,description\n");
+            flushLine();
+        }
+
+        @Override
+        public void write(int id, String placeName, String city, String description) throws IOException {
+            line.append(id).append(',').append(PlaceImporter.csv(placeName))
+                    .append(',').append(PlaceImporter.csv(city))
+                    .append(',').append(PlaceImporter.csv(description)).append('\n');
+            flushLine();
+        }
+    }
+
+    static class JsonLinesSink extends TextSink {
+        JsonLinesSink(File output) throws IOException {
+            super(output);
+        }
+
+        @Override
+        public void write(int id, String placeName, String city, String description) throws IOException {
+            line.append("{\"id\":").append(id);
+            appendField("place_name", placeName);
+            appendField("city", city);
+            appendField("description", description);
+            line.append("}\n");
+            flushLine();
+        }
+
+        private void appendField(String name, String value) {
+            line.append(",\"").append(name).append("\":");
+            if (value == null) {
+                line.append("null");
+            } else {
+                appendJsonString(line, value);
+            }
+        }
+    }
+
+    static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: PlaceExporter <output.csv|output.jsonl|output" + ColumnarPlaceFile.EXTENSION + ">");
+            System.exit(2);
+        }
+        File output = new File(args[0]);
+        long start = System.nanoTime();
+        long rows = export(output, Format.forFile(output));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("✅ Exported %d places to %s in %d ms%n", rows, output, millis);
+    }
+}
@@ -0,0 +1,354 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// JSON API over the PlaceService for web kiosks and partner integrations, on the JDK's built-in HTTP server:
+//
+//   java PlaceHttpServer [port]
+//
+//   GET    /places?after=<id>&limit=<n>&city=<c>   keyset page: {"places": [...], "next": <id to pass as after, or null>}
+//   GET    /places?q=<text>&limit=<n>               search results, best first
+//   GET    /places/<id>                             one place
+//   POST   /places                                  {"place_name", "city", "description"}: 201 with Location and the place
+//   PUT    /places/<id>                             {"description"}, needs If-Match: 200, or 412 with the current place
+//   DELETE /places/<id>                             needs If-Match: 204, or 412 with the current place
+//
+// Places are {"id", "place_name", "city", "description", "version"}. Every GET has an ETag and answers a
+// matching If-None-Match with 304; a place's ETag ("<id>.<version>") is what PUT and DELETE expect in If-Match.
+// Responses are streamed place by place. Each request runs on its own virtual thread when the JDK has them,
+// otherwise on a pool of http.threads platform threads.
+public class PlaceHttpServer {
+    private final PlaceService service;
+    private final int maxBodyBytes = DatabaseConnection.getInt("http.maxBodyBytes", 1024 * 1024);
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public PlaceHttpServer(PlaceService service) {
+        this.service = service;
+    }
+
+    // Port 0 picks a free one; see getPort()
+    public synchronized void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), DatabaseConnection.getInt("http.backlog", 1024));
+        server.createContext("/places", this::handle);
+        executor = requestExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    public synchronized int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Newer JDKs get a virtual thread per request; looked up reflectively so the app still runs on older ones
+    static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            int threads = DatabaseConnection.getInt("http.threads", 200);
+            System.out.println("ℹ️ No virtual threads on this JDK, serving requests on " + threads + " threads");
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "http-request");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (!path.equals("/places") && !path.startsWith("/places/")) {
+                error(exchange, 404, "Unknown path " + path);
+                return;
+            }
+            String rest = path.length() > "/places".length() ? path.substring("/places/".length()) : "";
+            String method = exchange.getRequestMethod();
+            if (rest.isEmpty()) {
+                if (method.equals("GET")) {
+                    list(exchange);
+                } else if (method.equals("POST")) {
+                    add(exchange);
+                } else {
+                    error(exchange, 405, "Use GET or POST on /places");
+                }
+                return;
+            }
+            int id = parseId(rest);
+            switch (method) {
+                case "GET":
+                    get(exchange, id);
+                    break;
+                case "PUT":
+                    edit(exchange, id);
+                    break;
+                case "DELETE":
+                    delete(exchange, id);
+                    break;
+                default:
+                    error(exchange, 405, "Use GET, PUT or DELETE on /places/<id>");
+            }
+        } catch (IllegalArgumentException e) {
+            error(exchange, 400, e.getMessage());
+        } catch (PlaceConflictException e) {
+            Place current = e.getCurrent();
+            exchange.getResponseHeaders().set("ETag", etag(current));
+            sendPlace(exchange, 412, current);
+        } catch (SQLTimeoutException e) {
+            error(exchange, 503, "The database is busy, try again");
+        } catch (SQLException e) {
+            e.printStackTrace();
+            error(exchange, 500, "Database error");
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            // Once a response has started there is no status left to send; closing it cuts the body short
+            if (exchange.getResponseCode() == -1) {
+                error(exchange, 500, "Internal error");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void list(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> query = query(exchange);
+        int limit = query.containsKey("limit") ? parseInt(query.get("limit"), "limit") : 50;
+        List<Place> places;
+        Integer next = null;
+        if (query.containsKey("q")) {
+            int[] ids = service.search(query.get("q"), Math.max(1, Math.min(limit, PlaceService.MAX_PAGE_SIZE)));
+            places = service.list(ids);
+        } else {
+            int after = query.containsKey("after") ? parseInt(query.get("after"), "after") : Integer.MIN_VALUE;
+            places = service.list(after, limit, query.get("city"));
+            if (places.size() == Math.max(1, Math.min(limit, PlaceService.MAX_PAGE_SIZE))) {
+                next = places.get(places.size() - 1).getId();
+            }
+        }
+        // Ids and versions identify the whole page: any edit bumps a version, any insert or delete changes the ids
+        long hash = 17;
+        for (Place place : places) {
+            hash = hash * 31 + place.getId();
+            hash = hash * 31 + place.getVersion();
+        }
+        String etag = "\"p" + Long.toHexString(hash) + "\"";
+        if (notModified(exchange, etag)) {
+            return;
+        }
+        try (Writer out = startJson(exchange, 200)) {
+            out.write("{\"places\":[");
+            StringBuilder json = new StringBuilder(512);
+            for (int i = 0; i < places.size(); i++) {
+                json.setLength(0);
+                if (i > 0) {
+                    json.append(',');
+                }
+                appendPlace(json, places.get(i));
+                out.append(json);
+            }
+            out.write("],\"next\":" + next + "}");
+        }
+    }
+
+    private void get(HttpExchange exchange, int id) throws IOException, SQLException {
+        Place place = service.get(id);
+        if (place == null) {
+            error(exchange, 404, "No place with id " + id);
+            return;
+        }
+        if (!notModified(exchange, etag(place))) {
+            sendPlace(exchange, 200, place);
+        }
+    }
+
+    private void add(HttpExchange exchange) throws IOException, SQLException {
+        String[] fields = readPlaceJson(exchange);
+        Place place = service.add(fields[0], fields[1], fields[2]);
+        exchange.getResponseHeaders().set("Location", "/places/" + place.getId());
+        exchange.getResponseHeaders().set("ETag", etag(place));
+        sendPlace(exchange, 201, place);
+    }
+
+    private void edit(HttpExchange exchange, int id) throws IOException, SQLException {
+        Place seen = seen(exchange, id);
+        if (seen == null) {
+            return;
+        }
+        Place updated = service.editDescription(seen, readPlaceJson(exchange)[2]);
+        if (updated == null) {
+            error(exchange, 404, "No place with id " + id);
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", etag(updated));
+        sendPlace(exchange, 200, updated);
+    }
+
+    private void delete(HttpExchange exchange, int id) throws IOException, SQLException {
+        Place seen = seen(exchange, id);
+        if (seen == null) {
+            return;
+        }
+        if (service.delete(seen)) {
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            error(exchange, 404, "No place with id " + id);
+        }
+    }
+
+    // The version the client last saw, from If-Match; answers the request itself and returns null when there's none
+    private Place seen(HttpExchange exchange, int id) throws IOException, SQLException {
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch == null) {
+            error(exchange, 428, "Send the place's ETag in If-Match so changes made by others aren't overwritten");
+            return null;
+        }
+        Place current = service.get(id);
+        if (current == null) {
+            error(exchange, 404, "No place with id " + id);
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2); // a proxy that re-encodes the body weakens the tag; the version is still exact
+        }
+        if (tag.equals("*")) {
+            return current;
+        }
+        String prefix = "\"" + id + ".";
+        if (!tag.startsWith(prefix) || !tag.endsWith("\"")) {
+            exchange.getResponseHeaders().set("ETag", etag(current));
+            sendPlace(exchange, 412, current);
+            return null;
+        }
+        int version = parseInt(tag.substring(prefix.length(), tag.length() - 1), "If-Match");
+        return new Place(id, current.getPlaceName(), current.getCity(), current.getDescription(), version,
+                current.getLatitude(), current.getLongitude());
+    }
+
+    private static String etag(Place place) {
+        return "\"" + place.getId() + "." + place.getVersion() + "\"";
+    }
+
+    private static boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        exchange.getResponseHeaders().set("ETag", etag);
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(etag))) {
+            exchange.sendResponseHeaders(304, -1);
+            return true;
+        }
+        return false;
+    }
+
+    // {place_name, city, description} from the request body; missing fields are null
+    private String[] readPlaceJson(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(maxBodyBytes + 1);
+        }
+        if (body.length > maxBodyBytes) {
+            throw new IllegalArgumentException("Request body is larger than " + maxBodyBytes + " bytes");
+        }
+        String[] fields = PlaceImporter.JsonLinesReader.parse(new String(body, StandardCharsets.UTF_8));
+        if (fields.length != 3) {
+            throw new IllegalArgumentException("Expected a JSON object of strings");
+        }
+        return fields;
+    }
+
+    private static void sendPlace(HttpExchange exchange, int status, Place place) throws IOException {
+        StringBuilder json = new StringBuilder(256);
+        appendPlace(json, place);
+        try (Writer out = startJson(exchange, status)) {
+            out.append(json);
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        PlaceExporter.appendJsonString(json, message);
+        json.append('}');
+        try (Writer out = startJson(exchange, status)) {
+            out.append(json);
+        }
+    }
+
+    // Chunked response, so nothing has to be buffered to learn its length
+    private static Writer startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192);
+    }
+
+    static void appendPlace(StringBuilder json, Place place) {
+        json.append("{\"id\":").append(place.getId()).append(",\"place_name\":");
+        PlaceExporter.appendJsonString(json, place.getPlaceName());
+        json.append(",\"city\":");
+        PlaceExporter.appendJsonString(json, place.getCity());
+        json.append(",\"description\":");
+        if (place.getDescription() == null) {
+            json.append("null");
+        } else {
+            PlaceExporter.appendJsonString(json, place.getDescription());
+        }
+        json.append(",\"version\":").append(place.getVersion()).append('}');
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static int parseId(String text) {
+        return parseInt(text, "id");
+    }
+
+    private static int parseInt(String text, String name) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + text);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DatabaseConnection.getInt("http.port", 8080);
+        PlaceStore.shared().warmUp(); // also starts the change feed, so the cache follows other clients' edits
+        PlaceHttpServer server = new PlaceHttpServer(PlaceService.shared());
+        server.start(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "http-shutdown"));
+        System.out.println("✅ Places API listening on http://localhost:" + server.getPort() + "/places");
+    }
+}
@@ -0,0 +1,518 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Streams places from a CSV or JSONL file into the PlaceStore.
+// One reader thread parses and validates rows; writer threads insert them through PlaceStore.insertAll, one
+// batch and transaction per chunk. Only a few chunks are ever in memory. Rows that fail validation or
+// insertion go to a reject file.
+//
+// CSV columns: place_name,city,description (an optional header row is skipped). A header starting with `id`,
+// as PlaceExporter writes, marks a leading id column, which is ignored: imported places get new ids.
+// JSONL: one {"place_name": ..., "city": ..., "description": ...} object per line; other keys, like the
+// exporter's numeric "id", are ignored.
+// .tbc: the columnar format written by PlaceExporter.
+public class PlaceImporter {
+    private static final List<Row> END = new ArrayList<>();
+
+    private final int writers;
+    private final int chunkSize;
+    private Listener listener;
+
+    public interface Listener {
+        void progress(long imported, long rejected, double rowsPerSecond);
+    }
+
+    public static class Result {
+        public final long imported;
+        public final long rejected;
+        public final long elapsedMillis;
+        public final File rejectFile;
+
+        Result(long imported, long rejected, long elapsedMillis, File rejectFile) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedMillis = elapsedMillis;
+            this.rejectFile = rejectFile;
+        }
+
+        public double rowsPerSecond() {
+            return elapsedMillis == 0 ? imported : imported * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d imported, %d rejected in %.1f s (%.0f rows/sec)",
+                    imported, rejected, elapsedMillis / 1000.0, rowsPerSecond());
+        }
+    }
+
+    private static class Row {
+        final long line;
+        final String[] fields;
+
+        Row(long line, String[] fields) {
+            this.line = line;
+            this.fields = fields;
+        }
+    }
+
+    public PlaceImporter(int writers, int chunkSize) {
+        // Writers borrow a pooled connection per chunk; the embedded store takes one writer at a time anyway
+        int maxWriters = PlaceStore.isEmbedded() ? 1 : DatabaseConnection.getPool().getMaxSize();
+        this.writers = Math.max(1, Math.min(writers, maxWriters));
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public PlaceImporter() {
+        this(DatabaseConnection.getInt("import.writers", 4), DatabaseConnection.getInt("import.chunkSize", 1000));
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public Result importFile(File input) throws IOException, InterruptedException {
+        return importFile(input, new File(input.getPath() + ".rejects.csv"));
+    }
+
+    public Result importFile(File input, File rejectFile) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        AtomicLong imported = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(writers * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>(); // the first thing that killed a writer
+
+        try (RecordReader records = openRecords(input);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile.toPath(), StandardCharsets.UTF_8)) {
+
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                Thread t = new Thread(() -> writeChunks(queue, rejects, imported, rejected, start, failure), "place-import-" + i);
+                t.start();
+                threads.add(t);
+            }
+
+            try {
+                List<Row> chunk = new ArrayList<>(chunkSize);
+                String[] fields;
+                while ((fields = records.next()) != null) {
+                    Row row = new Row(records.line(), fields);
+                    String problem = validate(fields);
+                    if (problem != null) {
+                        reject(rejects, row, problem);
+                        rejected.incrementAndGet();
+                        continue;
+                    }
+                    chunk.add(row);
+                    if (chunk.size() == chunkSize) {
+                        hand(queue, chunk, threads, failure);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    hand(queue, chunk, threads, failure);
+                }
+            } finally {
+                for (int i = 0; i < writers; i++) {
+                    hand(queue, END, threads, null);
+                }
+                for (Thread t : threads) {
+                    t.join();
+                }
+            }
+            if (failure.get() != null) {
+                throw new IOException("Import stopped after " + imported.get() + " places: " + failure.get(), failure.get());
+            }
+        } finally {
+            // Committed chunks stay committed however the import ended, and too many rows changed to patch
+            // cached pages one by one
+            if (imported.get() > 0) {
+                PlaceRepository.shared().clear();
+                SearchIndex.shared().invalidate();
+                GeoIndex.shared().invalidate();
+            }
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (rejected.get() == 0) {
+            Files.deleteIfExists(rejectFile.toPath());
+        }
+        return new Result(imported.get(), rejected.get(), elapsed, rejectFile);
+    }
+
+    private static RecordReader openRecords(File input) throws IOException {
+        String name = input.getName().toLowerCase();
+        if (name.endsWith(ColumnarPlaceFile.EXTENSION)) {
+            final ColumnarPlaceFile.Reader reader = new ColumnarPlaceFile.Reader(input);
+            return new RecordReader() {
+                private long row;
+
+                public String[] next() throws IOException {
+                    row++;
+                    return reader.next();
+                }
+
+                public long line() {
+                    return row;
+                }
+
+                public void close() throws IOException {
+                    reader.close();
+                }
+            };
+        }
+        BufferedReader reader = Files.newBufferedReader(input.toPath(), StandardCharsets.UTF_8);
+        return name.endsWith(".jsonl") ? new JsonLinesReader(reader) : new CsvReader(reader);
+    }
+
+    // Same rule as the Add Place form: every field is required
+    private static String validate(String[] fields) {
+        if (fields.length != 3) {
+            return "expected 3 fields but found " + fields.length;
+        }
+        if (!Place.isComplete(fields[0], fields[1], fields[2])) {
+            return "all fields are required";
+        }
+        return null;
+    }
+
+    // Queues a chunk for the writers. Gives up once no writer is left to take it, and (unless failure is null)
+    // throws once one of them has died, so a dead writer can't leave the reader blocked on a full queue.
+    private static void hand(BlockingQueue<List<Row>> queue, List<Row> chunk, List<Thread> threads,
+                             AtomicReference<Throwable> failure) throws IOException, InterruptedException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (threads.stream().noneMatch(Thread::isAlive)) {
+                break;
+            }
+        }
+        if (failure != null && failure.get() != null) {
+            throw new IOException("Import stopped: " + failure.get(), failure.get());
+        }
+    }
+
+    private void writeChunks(BlockingQueue<List<Row>> queue, Writer rejects, AtomicLong imported, AtomicLong rejected,
+                             long start, AtomicReference<Throwable> failure) {
+        PlaceStore store = PlaceStore.shared();
+        try {
+            List<Row> chunk;
+            while ((chunk = queue.take()) != END) {
+                List<String[]> rows = new ArrayList<>(chunk.size());
+                for (Row row : chunk) {
+                    rows.add(trimmed(row));
+                }
+                try {
+                    imported.addAndGet(store.insertAll(rows));
+                } catch (SQLException ex) {
+                    writeOneByOne(store, chunk, rejects, imported, rejected);
+                }
+                reportProgress(imported.get(), rejected.get(), start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    // A failed batch is retried row by row so one bad row doesn't sink the whole chunk
+    private void writeOneByOne(PlaceStore store, List<Row> chunk, Writer rejects, AtomicLong imported, AtomicLong rejected) {
+        for (Row row : chunk) {
+            try {
+                imported.addAndGet(store.insertAll(Collections.singletonList(trimmed(row))));
+            } catch (SQLException ex) {
+                reject(rejects, row, ex.getMessage());
+                rejected.incrementAndGet();
+            }
+        }
+    }
+
+    private static String[] trimmed(Row row) {
+        return new String[]{row.fields[0].trim(), row.fields[1].trim(), row.fields[2].trim()};
+    }
+
+    private void reportProgress(long imported, long rejected, long start) {
+        if (listener != null) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            listener.progress(imported, rejected, seconds > 0 ? imported / seconds : imported);
+        }
+    }
+
+    private static void reject(Writer rejects, Row row, String reason) {
+        StringBuilder line = new StringBuilder();
+        line.append(row.line).append(',').append(csv(reason));
+        for (String field : row.fields) {
+            line.append(',').append(csv(field));
+        }
+        line.append('\n');
+        synchronized (rejects) {
+            try {
+                rejects.write(line.toString());
+            } catch (IOException e) {
+                System.err.println("⚠ Failed to write reject for line " + row.line + ": " + e.getMessage());
+            }
+        }
+    }
+
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private interface RecordReader extends AutoCloseable {
+        String[] next() throws IOException;
+
+        long line();
+
+        @Override
+        void close() throws IOException;
+    }
+
+    // RFC 4180 style: quoted fields may contain commas, doubled quotes and line breaks
+    private static class CsvReader implements RecordReader {
+        private final BufferedReader in;
+        private long line;
+        private long recordLine;
+        private boolean first = true;
+        private boolean idColumn;
+
+        CsvReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        public void close() throws IOException {
+            in.close();
+        }
+
+        public long line() {
+            return recordLine;
+        }
+
+        public String[] next() throws IOException {
+            String[] record = readRecord();
+            if (first) {
+                first = false;
+                String column = record != null && record.length > 0 ? record[0].trim() : "";
+                if (column.equalsIgnoreCase("place_name") || column.equalsIgnoreCase("id")) {
+                    idColumn = column.equalsIgnoreCase("id");
+                    record = readRecord();
+                }
+            }
+            return idColumn && record != null && record.length > 0 ? Arrays.copyOfRange(record, 1, record.length) : record;
+        }
+
+        private String[] readRecord() throws IOException {
+            List<String> fields = new ArrayList<>(3);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            recordLine = ++line;
+            int c;
+            while ((c = in.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int next = in.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                in.reset();
+                            }
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    if (fields.isEmpty() && field.length() == 0) {
+                        recordLine = ++line; // skip blank lines
+                        continue;
+                    }
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!any || (c == -1 && fields.isEmpty() && field.length() == 0)) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields.toArray(new String[0]);
+        }
+    }
+
+    static class JsonLinesReader implements RecordReader {
+        private final BufferedReader in;
+        private long line;
+
+        JsonLinesReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        public void close() throws IOException {
+            in.close();
+        }
+
+        public long line() {
+            return line;
+        }
+
+        public String[] next() throws IOException {
+            String text;
+            while ((text = in.readLine()) != null) {
+                line++;
+                if (!text.trim().isEmpty()) {
+                    return parse(text);
+                }
+            }
+            return null;
+        }
+
+        // Flat objects with string, number or null values; anything else is reported through validation
+        static String[] parse(String text) {
+            String placeName = null, city = null, description = null;
+            int[] pos = {0};
+            try {
+                skipSpace(text, pos);
+                expect(text, pos, '{');
+                skipSpace(text, pos);
+                if (text.charAt(pos[0]) != '}') {
+                    while (true) {
+                        skipSpace(text, pos);
+                        String key = readString(text, pos);
+                        skipSpace(text, pos);
+                        expect(text, pos, ':');
+                        skipSpace(text, pos);
+                        String value = text.startsWith("null", pos[0]) ? skipNull(pos)
+                                : text.charAt(pos[0]) == '"' ? readString(text, pos) : readNumber(text, pos);
+                        if (key.equals("place_name")) {
+                            placeName = value;
+                        } else if (key.equals("city")) {
+                            city = value;
+                        } else if (key.equals("description")) {
+                            description = value;
+                        }
+                        skipSpace(text, pos);
+                        if (text.charAt(pos[0]) == ',') {
+                            pos[0]++;
+                            continue;
+                        }
+                        expect(text, pos, '}');
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                return new String[]{text};
+            }
+            return new String[]{placeName, city, description};
+        }
+
+        private static String skipNull(int[] pos) {
+            pos[0] += 4;
+            return null;
+        }
+
+        private static String readNumber(String text, int[] pos) {
+            int start = pos[0];
+            while (pos[0] < text.length() && "+-.eE0123456789".indexOf(text.charAt(pos[0])) >= 0) {
+                pos[0]++;
+            }
+            if (pos[0] == start) {
+                throw new IllegalArgumentException("expected a value at " + start);
+            }
+            return text.substring(start, pos[0]);
+        }
+
+        private static void skipSpace(String text, int[] pos) {
+            while (pos[0] < text.length() && Character.isWhitespace(text.charAt(pos[0]))) {
+                pos[0]++;
+            }
+        }
+
+        private static void expect(String text, int[] pos, char c) {
+            if (text.charAt(pos[0]) != c) {
+                throw new IllegalArgumentException("expected " + c + " at " + pos[0]);
+            }
+            pos[0]++;
+        }
+
+        private static String readString(String text, int[] pos) {
+            expect(text, pos, '"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = text.charAt(pos[0]++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = text.charAt(pos[0]++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(text.substring(pos[0], pos[0] + 4), 16));
+                        pos[0] += 4;
+                        break;
+                    default: sb.append(e);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: PlaceImporter <file.csv|file.jsonl|file" + ColumnarPlaceFile.EXTENSION + "> [writers] [chunkSize]");
+            System.exit(2);
+        }
+        PlaceImporter importer = args.length > 1
+                ? new PlaceImporter(Integer.parseInt(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : 1000)
+                : new PlaceImporter();
+        final long[] lastReport = {0};
+        importer.setListener((imported, rejected, rate) -> {
+            long now = System.currentTimeMillis();
+            if (now - lastReport[0] >= 1000) {
+                lastReport[0] = now;
+                System.out.printf("… %d imported, %d rejected, %.0f rows/sec%n", imported, rejected, rate);
+            }
+        });
+        Result result = importer.importFile(new File(args[0]));
+        System.out.println("✅ " + result);
+        if (result.rejected > 0) {
+            System.out.println("⚠ Rejected rows written to " + result.rejectFile);
+        }
+    }
+}
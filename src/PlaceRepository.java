@@ -0,0 +1,438 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Read-through cache in front of a PlaceStore. Places are cached by id (with a secondary index by city) up to a
+// weight budget of roughly their size in bytes, evicting least recently used first. The answers to list
+// queries (counts, city facets, pages, latest) are cached as id lists on top of that, so reopening a screen is served
+// from memory. All writes go through here: the store first, then the cache and the search and geo indexes.
+public class PlaceRepository {
+    private static final PlaceRepository SHARED = new PlaceRepository(PlaceStore.shared(),
+            DatabaseConnection.getInt("cache.maxBytes", 32 * 1024 * 1024));
+
+    private final PlaceStore store;
+    private final long maxWeight;
+    private final LinkedHashMap<Integer, Place> places = new LinkedHashMap<>(1024, 0.75f, true);
+    private final Map<String, Set<Integer>> byCity = new HashMap<>();
+    // Results of list queries, keyed by query; dropped whenever a write could change them
+    private final Map<String, int[]> queries = new HashMap<>();
+    private final Map<String, Integer> counts = new HashMap<>(); // by city, "" for all
+    private Map<String, Integer> cityCounts;
+    private long weight;
+    private long version;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public PlaceRepository(PlaceStore store, long maxWeight) {
+        this.store = store;
+        this.maxWeight = maxWeight;
+    }
+
+    public static PlaceRepository shared() {
+        return SHARED;
+    }
+
+    public int count(String city) throws SQLException {
+        String key = city == null ? "" : city;
+        long seen;
+        synchronized (this) {
+            Integer cached = counts.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            seen = version;
+        }
+        int loaded = store.count(city);
+        synchronized (this) {
+            if (seen == version) {
+                counts.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    public Map<String, Integer> cityCounts() throws SQLException {
+        long seen;
+        synchronized (this) {
+            if (cityCounts != null) {
+                hits++;
+                return cityCounts;
+            }
+            misses++;
+            seen = version;
+        }
+        Map<String, Integer> loaded = Collections.unmodifiableMap(store.cityCounts());
+        synchronized (this) {
+            if (seen == version) {
+                cityCounts = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    public List<Place> pageAfter(int afterId, int limit, String city) throws SQLException {
+        String key = "after:" + afterId + ":" + limit + ":" + city;
+        List<Place> cached = cachedQuery(key);
+        if (cached != null) {
+            return cached;
+        }
+        long seen = version();
+        return storeQuery(key, seen, store.pageAfter(afterId, limit, city));
+    }
+
+    public List<Place> pageAt(int offset, int limit, String city) throws SQLException {
+        String key = "at:" + offset + ":" + limit + ":" + city;
+        List<Place> cached = cachedQuery(key);
+        if (cached != null) {
+            return cached;
+        }
+        long seen = version();
+        return storeQuery(key, seen, store.pageAt(offset, limit, city));
+    }
+
+    public List<Place> byIds(int[] ids, int from, int to) throws SQLException {
+        List<Place> result = new ArrayList<>(to - from);
+        List<Integer> missing = new ArrayList<>();
+        synchronized (this) {
+            for (int i = from; i < to; i++) {
+                if (places.containsKey(ids[i])) {
+                    hits++;
+                } else {
+                    misses++;
+                    missing.add(ids[i]);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            int[] missingIds = missing.stream().mapToInt(Integer::intValue).toArray();
+            for (Place place : store.byIds(missingIds, 0, missingIds.length)) {
+                cache(place);
+            }
+        }
+        Map<Integer, Place> loaded = new HashMap<>();
+        synchronized (this) {
+            for (int i = from; i < to; i++) {
+                Place place = places.get(ids[i]);
+                if (place != null) {
+                    loaded.put(ids[i], place);
+                }
+            }
+        }
+        for (int i = from; i < to; i++) {
+            Place place = loaded.get(ids[i]);
+            if (place != null) {
+                result.add(place);
+            }
+        }
+        return result;
+    }
+
+    // Descriptions for the given places; only those not already cached are queried
+    public Map<Integer, String> descriptions(int[] ids) throws SQLException {
+        Map<Integer, String> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        synchronized (this) {
+            for (int id : ids) {
+                Place place = places.get(id);
+                if (place != null && place.getDescription() != null) {
+                    hits++;
+                    result.put(id, place.getDescription());
+                } else {
+                    misses++;
+                    missing.add(id);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Integer, String> loaded = store.descriptions(missing.stream().mapToInt(Integer::intValue).toArray());
+            synchronized (this) {
+                for (Map.Entry<Integer, String> entry : loaded.entrySet()) {
+                    Place place = places.get(entry.getKey());
+                    if (place != null) {
+                        put(place.withDescription(entry.getValue()));
+                    }
+                }
+            }
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    // Description previews for table cells. Cached descriptions are cut down; the rest come from the store
+    // without loading their full text, and aren't cached here.
+    public Map<Integer, String> descriptionPreviews(int[] ids, int maxChars) throws SQLException {
+        Map<Integer, String> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        synchronized (this) {
+            for (int id : ids) {
+                Place place = places.get(id);
+                if (place != null && place.getDescription() != null) {
+                    hits++;
+                    result.put(id, PlaceStore.preview(place.getDescription(), maxChars));
+                } else {
+                    misses++;
+                    missing.add(id);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            result.putAll(store.descriptionPreviews(missing.stream().mapToInt(Integer::intValue).toArray(), maxChars));
+        }
+        return result;
+    }
+
+    // The complete place, description included, or null if it no longer exists
+    public Place find(int id) throws SQLException {
+        synchronized (this) {
+            Place place = places.get(id);
+            if (place != null && place.getDescription() != null) {
+                hits++;
+                return place;
+            }
+            misses++;
+        }
+        Place place = store.find(id);
+        if (place != null) {
+            cache(place);
+        }
+        return place;
+    }
+
+    public Place latest() throws SQLException {
+        List<Place> cached = cachedQuery("latest");
+        if (cached != null && (cached.isEmpty() || cached.get(0).getDescription() != null)) {
+            return cached.isEmpty() ? null : cached.get(0);
+        }
+        long seen = version();
+        Place latest = store.latest();
+        List<Place> stored = storeQuery("latest", seen,
+                latest == null ? Collections.<Place>emptyList() : Collections.singletonList(latest));
+        return stored.isEmpty() ? null : stored.get(0);
+    }
+
+    // Cached places in a city; a place that isn't cached yet won't be listed
+    public synchronized List<Place> cachedInCity(String city) {
+        List<Place> result = new ArrayList<>();
+        Set<Integer> ids = byCity.get(city);
+        if (ids != null) {
+            for (int id : ids) {
+                result.add(places.get(id));
+            }
+        }
+        return result;
+    }
+
+    public Place insert(String placeName, String city, String description) throws SQLException {
+        return insert(placeName, city, description, Double.NaN, Double.NaN);
+    }
+
+    public Place insert(String placeName, String city, String description, double latitude, double longitude) throws SQLException {
+        Place place = store.insert(placeName, city, description, latitude, longitude);
+        indexed(place);
+        synchronized (this) {
+            invalidateQueries();
+            put(place);
+            queries.put("latest", new int[]{place.getId()});
+        }
+        return place;
+    }
+
+    // On a conflict the cache takes the other client's version before the exception reaches the caller
+    public Place updateDescription(Place seen, String description) throws SQLException {
+        Place place;
+        try {
+            place = store.updateDescription(seen, description);
+        } catch (PlaceConflictException ex) {
+            cache(ex.getCurrent());
+            throw ex;
+        }
+        if (place != null) {
+            // Order and names are unchanged, so cached pages stay valid
+            cache(place);
+            indexed(place);
+        } else {
+            forget(seen.getId());
+        }
+        return place;
+    }
+
+    public boolean delete(Place seen) throws SQLException {
+        boolean deleted;
+        try {
+            deleted = store.delete(seen);
+        } catch (PlaceConflictException ex) {
+            cache(ex.getCurrent());
+            throw ex;
+        }
+        // Gone either way: deleted now, or already deleted by someone else
+        forget(seen.getId());
+        SearchIndex.shared().remove(seen.getId());
+        GeoIndex.shared().remove(seen.getId());
+        return deleted;
+    }
+
+    // Keeps the indexes current; each one holds the change back if it is still loading
+    private static void indexed(Place place) {
+        SearchIndex.shared().put(place);
+        GeoIndex.shared().put(place);
+    }
+
+    // A place that is gone, e.g. deleted by another client
+    public synchronized void forget(int id) {
+        invalidateQueries();
+        remove(id);
+    }
+
+    // A place another client inserted or edited; kept unless the cache already has a newer version
+    public synchronized void changedElsewhere(Place place, boolean inserted) {
+        if (inserted) {
+            invalidateQueries();
+        }
+        Place cached = places.get(place.getId());
+        if (cached == null || cached.getVersion() <= place.getVersion()) {
+            put(place);
+        }
+    }
+
+    // Forgets everything, e.g. after a bulk import or ids were renumbered
+    public synchronized void clear() {
+        invalidateQueries();
+        places.clear();
+        byCity.clear();
+        weight = 0;
+    }
+
+    private synchronized long version() {
+        return version;
+    }
+
+    private synchronized List<Place> cachedQuery(String key) {
+        int[] ids = queries.get(key);
+        if (ids == null) {
+            misses++;
+            return null;
+        }
+        List<Place> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Place place = places.get(id);
+            if (place == null) {
+                // Part of the answer was evicted; treat the whole query as a miss
+                queries.remove(key);
+                misses++;
+                return null;
+            }
+            result.add(place);
+        }
+        hits++;
+        return result;
+    }
+
+    private synchronized List<Place> storeQuery(String key, long seen, List<Place> loaded) {
+        List<Place> result = new ArrayList<>(loaded.size());
+        for (Place place : loaded) {
+            result.add(put(place));
+        }
+        // A write since the query started may have changed the answer, so don't keep it
+        if (seen == version) {
+            queries.put(key, loaded.stream().mapToInt(Place::getId).toArray());
+        }
+        return result;
+    }
+
+    private synchronized void cache(Place place) {
+        put(place);
+    }
+
+    // Adds or replaces a place, keeping an already cached description when the new copy of the same version has none
+    private Place put(Place place) {
+        Place previous = places.get(place.getId());
+        if (previous != null && place.getDescription() == null && previous.getDescription() != null
+                && previous.getVersion() == place.getVersion()) {
+            place = place.withDescription(previous.getDescription());
+        }
+        remove(place.getId());
+        places.put(place.getId(), place);
+        byCity.computeIfAbsent(place.getCity(), c -> new HashSet<>()).add(place.getId());
+        weight += weightOf(place);
+        evict();
+        return place;
+    }
+
+    private void remove(int id) {
+        Place previous = places.remove(id);
+        if (previous != null) {
+            weight -= weightOf(previous);
+            Set<Integer> ids = byCity.get(previous.getCity());
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    byCity.remove(previous.getCity());
+                }
+            }
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Integer, Place>> it = places.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Place eldest = it.next().getValue();
+            it.remove();
+            weight -= weightOf(eldest);
+            Set<Integer> ids = byCity.get(eldest.getCity());
+            if (ids != null) {
+                ids.remove(eldest.getId());
+                if (ids.isEmpty()) {
+                    byCity.remove(eldest.getCity());
+                }
+            }
+            evictions++;
+        }
+    }
+
+    private void invalidateQueries() {
+        version++;
+        queries.clear();
+        counts.clear();
+        cityCounts = null;
+    }
+
+    // Rough heap footprint: object headers plus two bytes per char
+    private static long weightOf(Place place) {
+        return 96 + 2L * (length(place.getPlaceName()) + length(place.getCity()) + length(place.getDescription()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("cache[places=%d, cities=%d, queries=%d, weight=%d/%d bytes, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d]",
+                places.size(), byCity.size(), queries.size(), weight, maxWeight, hits, misses,
+                lookups == 0 ? 0 : hits * 100.0 / lookups, evictions);
+    }
+}
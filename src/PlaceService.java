@@ -0,0 +1,121 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The place operations behind both the Swing screens and the HTTP API (PlaceHttpServer): input checks, then
+// the PlaceRepository, which keeps the cache and search index current. Every method blocks on the store, so
+// the UI calls them through AsyncDb. Bad input is reported as an IllegalArgumentException.
+public class PlaceService {
+    public static final int MAX_PAGE_SIZE = 500;
+    private static final PlaceService SHARED = new PlaceService(PlaceRepository.shared());
+
+    private final PlaceRepository repository;
+
+    public PlaceService(PlaceRepository repository) {
+        this.repository = repository;
+    }
+
+    public static PlaceService shared() {
+        return SHARED;
+    }
+
+    public Place add(String placeName, String city, String description) throws SQLException {
+        return add(placeName, city, description, Double.NaN, Double.NaN);
+    }
+
+    // Latitude and longitude in degrees, or both NaN for a place without a location
+    public Place add(String placeName, String city, String description, double latitude, double longitude) throws SQLException {
+        if (!Place.isComplete(placeName, city, description)) {
+            throw new IllegalArgumentException("All fields are required!");
+        }
+        if (!Place.isValidLocation(latitude, longitude)) {
+            throw new IllegalArgumentException("Latitude must be between -90 and 90 and longitude between -180 and 180");
+        }
+        return repository.insert(placeName.trim(), city.trim(), description.trim(), latitude, longitude);
+    }
+
+    // The complete place, or null if it doesn't exist
+    public Place get(int id) throws SQLException {
+        return repository.find(id);
+    }
+
+    public Place latest() throws SQLException {
+        return repository.latest();
+    }
+
+    // Keyset page of complete places after the given id (Integer.MIN_VALUE for the first page), optionally in one city
+    public List<Place> list(int afterId, int limit, String city) throws SQLException {
+        return complete(repository.pageAfter(afterId, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)), city));
+    }
+
+    // Complete places for the given ids, in the same order (ids that no longer exist are skipped)
+    public List<Place> list(int[] ids) throws SQLException {
+        return complete(repository.byIds(ids, 0, ids.length));
+    }
+
+    // Ids of the best matches for a free-text query, best first
+    public int[] search(String query, int limit) throws SQLException {
+        SearchIndex index = SearchIndex.shared();
+        index.ensureBuilt();
+        return index.search(query, limit);
+    }
+
+    // Places closest to the point, closest first; radiusKm <= 0 means any distance
+    public List<Nearby> nearby(double latitude, double longitude, double radiusKm, int limit) throws SQLException {
+        if (!Place.isValidLocation(latitude, longitude) || Double.isNaN(latitude)) {
+            throw new IllegalArgumentException("Latitude must be between -90 and 90 and longitude between -180 and 180");
+        }
+        GeoIndex index = GeoIndex.shared();
+        index.ensureBuilt();
+        int count = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<GeoIndex.Hit> hits = radiusKm > 0 ? index.within(latitude, longitude, radiusKm, count)
+                : index.nearest(latitude, longitude, count);
+        int[] ids = hits.stream().mapToInt(hit -> hit.id).toArray();
+        Map<Integer, Place> places = new HashMap<>();
+        for (Place place : repository.byIds(ids, 0, ids.length)) {
+            places.put(place.getId(), place);
+        }
+        List<Nearby> result = new ArrayList<>(hits.size());
+        for (GeoIndex.Hit hit : hits) {
+            Place place = places.get(hit.id);
+            if (place != null) {
+                result.add(new Nearby(place, hit.distanceKm));
+            }
+        }
+        return result;
+    }
+
+    // `seen` is the version the caller edited; see PlaceConflictException. Returns null if the place is gone.
+    public Place editDescription(Place seen, String description) throws SQLException {
+        if (description == null || description.trim().isEmpty()) {
+            throw new IllegalArgumentException("The description can't be empty");
+        }
+        return repository.updateDescription(seen, description.trim());
+    }
+
+    // Returns false if the place was already gone
+    public boolean delete(Place seen) throws SQLException {
+        return repository.delete(seen);
+    }
+
+    public static class Nearby {
+        public final Place place;
+        public final double distanceKm;
+
+        Nearby(Place place, double distanceKm) {
+            this.place = place;
+            this.distanceKm = distanceKm;
+        }
+    }
+
+    private List<Place> complete(List<Place> places) throws SQLException {
+        Map<Integer, String> descriptions = repository.descriptions(places.stream().mapToInt(Place::getId).toArray());
+        List<Place> result = new ArrayList<>(places.size());
+        for (Place place : places) {
+            result.add(place.getDescription() != null ? place : place.withDescription(descriptions.get(place.getId())));
+        }
+        return result;
+    }
+}
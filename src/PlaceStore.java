@@ -0,0 +1,90 @@
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Where places are kept. The app talks to the shared store picked by store.type: "jdbc" (the default, the
+// MySQL tourism_db) or "embedded" (a local file, for running offline). Paged reads come back without the
+// description, which is fetched separately for the rows that are actually on screen. Edits and deletes only
+// apply to the version of the place the caller saw, see PlaceConflictException.
+public interface PlaceStore {
+
+    // Row count for one city, or for all places when city is null
+    int count(String city) throws SQLException;
+
+    // Places per city, ordered by city
+    Map<String, Integer> cityCounts() throws SQLException;
+
+    // Keyset page: the next `limit` places after the given id, optionally within one city
+    List<Place> pageAfter(int afterId, int limit, String city) throws SQLException;
+
+    // Offset page, only used when jumping to a page whose starting id isn't known yet
+    List<Place> pageAt(int offset, int limit, String city) throws SQLException;
+
+    // Places for the given ids, in the same order (ids that no longer exist are skipped)
+    List<Place> byIds(int[] ids, int from, int to) throws SQLException;
+
+    Map<Integer, String> descriptions(int[] ids) throws SQLException;
+
+    // At most the first maxChars characters of each description, enough to fill a table cell
+    Map<Integer, String> descriptionPreviews(int[] ids, int maxChars) throws SQLException;
+
+    // Complete places, description included, for the given ids (ids that no longer exist are left out)
+    Map<Integer, Place> places(int[] ids) throws SQLException;
+
+    // Every place in id order, description included, without holding them all in memory
+    void scan(Consumer<Place> consumer) throws SQLException;
+
+    // The most recently added place, or null when there are none
+    Place latest() throws SQLException;
+
+    Place find(int id) throws SQLException;
+
+    default Place insert(String placeName, String city, String description) throws SQLException {
+        return insert(placeName, city, description, Double.NaN, Double.NaN);
+    }
+
+    // Latitude and longitude in degrees, or NaN for a place without a location
+    Place insert(String placeName, String city, String description, double latitude, double longitude) throws SQLException;
+
+    // Inserts rows of {place_name, city, description} all or nothing; returns how many were added
+    int insertAll(List<String[]> rows) throws SQLException;
+
+    // Returns the updated place, or null if it no longer exists
+    Place updateDescription(Place seen, String description) throws SQLException;
+
+    // Returns false if the place no longer exists
+    boolean delete(Place seen) throws SQLException;
+
+    // Prepares the store in the background at startup so the first screen doesn't wait for it
+    void warmUp() throws SQLException;
+
+    static PlaceStore shared() {
+        return Holder.SHARED;
+    }
+
+    // The first maxChars characters of text, never splitting a surrogate pair
+    static String preview(String text, int maxChars) {
+        if (text == null || text.length() <= maxChars) {
+            return text;
+        }
+        int end = Character.isHighSurrogate(text.charAt(maxChars - 1)) ? maxChars - 1 : maxChars;
+        return text.substring(0, end);
+    }
+
+    static boolean isEmbedded() {
+        return shared() instanceof LogPlaceStore;
+    }
+
+    final class Holder {
+        static final PlaceStore SHARED = create();
+
+        private static PlaceStore create() {
+            String type = DatabaseConnection.getSetting("store.type", "jdbc");
+            if ("embedded".equalsIgnoreCase(type)) {
+                return LogPlaceStore.open(DatabaseConnection.getSetting("store.file", "tourism-places.log"));
+            }
+            return new JdbcPlaceStore();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// Table model that pages rows in from the database as JTable asks for them.
+// Only a bounded number of pages is kept; description previews (never the full text) are loaded per page on
+// first display. Pages load in the background; cells show as blank until their page arrives.
+public class PlaceTableModel extends AbstractTableModel {
+    public static final int ORDINAL_COLUMN = 0;
+    public static final int ID_COLUMN = 1;
+    public static final int NAME_COLUMN = 2;
+    public static final int CITY_COLUMN = 3;
+    public static final int DESCRIPTION_COLUMN = 4;
+    public static final int PHOTO_COLUMN = 5; // hash of the place's first photo, see PhotoStore
+
+    private static final String[] COLUMNS = {"No.", "ID", "Place Name", "City", "Description", "Photo"};
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 16;
+    // More than a cell ever shows; longer descriptions end in an ellipsis
+    public static final int PREVIEW_CHARS = 200;
+
+    private final Map<Integer, Page> pages = new LinkedHashMap<Integer, Page>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    // Last id of every page seen so far, so the next page can be fetched with a keyset query
+    private final Map<Integer, Integer> pageEndIds = new HashMap<>();
+    // Pages (and page descriptions) being loaded; JTable asks for every cell of a page while it loads, and each of
+    // those would otherwise submit the same load again
+    private final Set<Integer> loadingPages = new HashSet<>();
+    private final Set<Integer> loadingDescriptions = new HashSet<>();
+    private final AsyncDb db;
+    private int rowCount;
+    private int generation;
+    private int[] filterIds; // search results being shown, or null for the whole table
+    private String city; // only places in this city, or null for all
+
+    public PlaceTableModel(AsyncDb db) {
+        this.db = db;
+    }
+
+    public void refresh(AsyncDb.Callback<Exception> onError) {
+        if (filterIds != null) {
+            setFilter(filterIds);
+            return;
+        }
+        final String countCity = city;
+        db.submitLatest("count", () -> PlaceRepository.shared().count(countCity), count -> {
+            invalidateFrom(0);
+            rowCount = count;
+            fireTableDataChanged();
+        }, onError);
+    }
+
+    // Shows just these places, in this order; null goes back to the whole table
+    public void setFilter(int[] ids) {
+        db.cancel("count");
+        filterIds = ids;
+        if (ids == null) {
+            refresh(Throwable::printStackTrace);
+            return;
+        }
+        invalidateFrom(0);
+        rowCount = ids.length;
+        fireTableDataChanged();
+    }
+
+    // Shows the places of one city (null for all cities) and leaves any search results
+    public void setCity(String city) {
+        if (filterIds == null && Objects.equals(this.city, city)) {
+            return; // already showing it; keep the loaded pages and the scroll position
+        }
+        this.city = city;
+        filterIds = null;
+        invalidateFrom(0);
+        rowCount = 0;
+        fireTableDataChanged();
+        refresh(Throwable::printStackTrace);
+    }
+
+    public boolean isFiltered() {
+        return filterIds != null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == ORDINAL_COLUMN || column == ID_COLUMN ? Integer.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column == ORDINAL_COLUMN) {
+            return row + 1;
+        }
+        Page page = page(row / PAGE_SIZE);
+        int index = row % PAGE_SIZE;
+        if (page == null || index >= page.places.size()) {
+            return null;
+        }
+        Place place = page.places.get(index);
+        switch (column) {
+            case ID_COLUMN:
+                return place.getId();
+            case NAME_COLUMN:
+                return place.getPlaceName();
+            case CITY_COLUMN:
+                return place.getCity();
+            case DESCRIPTION_COLUMN:
+                return page.description(place.getId());
+            default:
+                return PhotoStore.shared().cover(place.getId());
+        }
+    }
+
+    // Applies an edited row in place; repaints only that row if it is cached
+    public void placeUpdated(Place place) {
+        for (Page page : pages.values()) {
+            int index = page.indexOf(place.getId());
+            if (index >= 0) {
+                page.places.set(index, place.withDescription(null));
+                if (page.descriptions != null && place.getDescription() != null) {
+                    page.descriptions.put(place.getId(), preview(place.getDescription()));
+                }
+                int row = page.index * PAGE_SIZE + index;
+                fireTableRowsUpdated(row, row);
+                return;
+            }
+        }
+    }
+
+    // Removes a row. Later rows shift up by one, so the cached pages from this one on are dropped and
+    // reload lazily; the rest of the cache and every earlier keyset boundary stay valid.
+    public void placeDeleted(int id) {
+        for (Page page : pages.values()) {
+            int index = page.indexOf(id);
+            if (index >= 0) {
+                int row = page.index * PAGE_SIZE + index;
+                invalidateFrom(page.index);
+                if (filterIds != null) {
+                    filterIds = IntStream.of(filterIds).filter(filtered -> filtered != id).toArray();
+                }
+                rowCount--;
+                fireTableRowsDeleted(row, row);
+                return;
+            }
+        }
+        // Not on any cached page, so we can't tell which row moved
+        refresh(Throwable::printStackTrace);
+    }
+
+    // New places get the highest id, so they always land at the end
+    public void placeInserted(Place place) {
+        if (filterIds != null || (city != null && !city.equals(place.getCity()))) {
+            return; // not part of what is shown
+        }
+        int row = rowCount;
+        invalidateFrom(row / PAGE_SIZE);
+        rowCount++;
+        fireTableRowsInserted(row, row);
+    }
+
+    private void invalidateFrom(int pageIndex) {
+        generation++;
+        pages.keySet().removeIf(index -> index >= pageIndex);
+        pageEndIds.keySet().removeIf(index -> index >= pageIndex);
+        loadingPages.removeIf(index -> index >= pageIndex);
+        loadingDescriptions.removeIf(index -> index >= pageIndex);
+    }
+
+    // The place on a row, without its description (see PlaceRepository.find), or null while it loads
+    public Place getPlaceAt(int row) {
+        Page page = page(row / PAGE_SIZE);
+        int index = row % PAGE_SIZE;
+        if (page == null || index >= page.places.size()) {
+            return null;
+        }
+        return page.places.get(index);
+    }
+
+    private Page page(int pageIndex) {
+        Page page = pages.get(pageIndex);
+        if (page == null) {
+            loadPage(pageIndex);
+        }
+        return page;
+    }
+
+    private void loadPage(final int pageIndex) {
+        if (!loadingPages.add(pageIndex)) {
+            return;
+        }
+        final int gen = generation;
+        final Integer previousEnd = pageIndex == 0 ? Integer.valueOf(Integer.MIN_VALUE) : pageEndIds.get(pageIndex - 1);
+        final int[] filter = filterIds;
+        final String pageCity = city;
+        db.submit("page:" + gen + ":" + pageIndex, () -> {
+            if (filter != null) {
+                int from = Math.min(pageIndex * PAGE_SIZE, filter.length);
+                return PlaceRepository.shared().byIds(filter, from, Math.min(from + PAGE_SIZE, filter.length));
+            }
+            if (previousEnd != null) {
+                return PlaceRepository.shared().pageAfter(previousEnd, PAGE_SIZE, pageCity);
+            }
+            return PlaceRepository.shared().pageAt(pageIndex * PAGE_SIZE, PAGE_SIZE, pageCity);
+        }, places -> {
+            if (gen != generation) {
+                return;
+            }
+            loadingPages.remove(pageIndex);
+            if (!places.isEmpty()) {
+                pageEndIds.put(pageIndex, places.get(places.size() - 1).getId());
+            }
+            pages.put(pageIndex, new Page(pageIndex, places));
+            firePageUpdated(pageIndex);
+        }, ex -> {
+            if (gen == generation) {
+                loadingPages.remove(pageIndex); // the next paint tries again
+            }
+            ex.printStackTrace();
+        });
+    }
+
+    private void loadDescriptions(final Page page) {
+        if (page.places.isEmpty() || !loadingDescriptions.add(page.index)) {
+            return;
+        }
+        final int gen = generation;
+        final int[] ids = page.places.stream().mapToInt(Place::getId).toArray();
+        db.submit("descriptions:" + gen + ":" + page.index,
+                () -> PlaceRepository.shared().descriptionPreviews(ids, PREVIEW_CHARS + 1), previews -> {
+            if (gen != generation) {
+                return;
+            }
+            loadingDescriptions.remove(page.index);
+            previews.replaceAll((id, text) -> preview(text));
+            page.descriptions = previews;
+            firePageUpdated(page.index);
+        }, ex -> {
+            if (gen == generation) {
+                loadingDescriptions.remove(page.index);
+            }
+            ex.printStackTrace();
+        });
+    }
+
+    private static String preview(String description) {
+        return description == null || description.length() <= PREVIEW_CHARS
+                ? description : PlaceStore.preview(description, PREVIEW_CHARS) + "…";
+    }
+
+    private void firePageUpdated(int pageIndex) {
+        int first = pageIndex * PAGE_SIZE;
+        int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    private class Page {
+        final int index;
+        final List<Place> places;
+        Map<Integer, String> descriptions; // previews, see PREVIEW_CHARS
+
+        Page(int index, List<Place> places) {
+            this.index = index;
+            this.places = places;
+        }
+
+        int indexOf(int id) {
+            for (int i = 0; i < places.size(); i++) {
+                if (places.get(i).getId() == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String description(int id) {
+            if (descriptions == null) {
+                loadDescriptions(this);
+                return null;
+            }
+            return descriptions.get(id);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Versioned schema changes for tourism_db. Each migration runs once, in order, and is recorded in
+// schema_version. Add new steps to the end of MIGRATIONS; never edit one that has shipped.
+public class SchemaMigrations {
+
+    private static final String[][] MIGRATIONS = {
+            {"create place table",
+                    "CREATE TABLE IF NOT EXISTS place ("
+                            + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                            + "place_name VARCHAR(255) NOT NULL, "
+                            + "city VARCHAR(255) NOT NULL, "
+                            + "description TEXT)"},
+            {"index place by city",
+                    "CREATE INDEX idx_place_city ON place (city, id)"},
+            {"index place by name",
+                    "CREATE INDEX idx_place_name ON place (place_name)"},
+            {"version places for optimistic locking",
+                    "ALTER TABLE place ADD COLUMN version INT NOT NULL DEFAULT 0"},
+            {"log place changes for the change feed",
+                    "CREATE TABLE IF NOT EXISTS place_changes ("
+                            + "seq BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                            + "place_id INT NOT NULL, "
+                            + "op CHAR(1) NOT NULL, "
+                            + "changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)"},
+            {"locate places for nearby search",
+                    "ALTER TABLE place ADD COLUMN latitude DOUBLE NULL, ADD COLUMN longitude DOUBLE NULL"},
+            {"index place changes by time for retention",
+                    "CREATE INDEX idx_place_changes_changed_at ON place_changes (changed_at)"},
+    };
+
+    // Queries that must be answered from an index: {label, sql, expected index, sample parameters...}
+    private static final Object[][] INDEXED_QUERIES = {
+            {"city facet counts", JdbcPlaceStore.CITY_COUNTS, "idx_place_city"},
+            {"city page", JdbcPlaceStore.CITY_PAGE, "idx_place_city", "Agra", 0, 200},
+            {"name lookup", "SELECT id FROM place WHERE place_name = ?", "idx_place_name", "Taj Mahal"},
+    };
+
+    private static volatile boolean migrated;
+
+    public static synchronized int migrate() throws SQLException {
+        if (migrated) {
+            return 0;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int applied = migrate(conn);
+            migrated = true;
+            return applied;
+        }
+    }
+
+    // Returns the number of migrations applied
+    public static int migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                    + "version INT PRIMARY KEY, "
+                    + "description VARCHAR(255) NOT NULL, "
+                    + "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        int current = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            if (rs.next()) {
+                current = rs.getInt(1);
+            }
+        }
+
+        int applied = 0;
+        for (int version = current + 1; version <= MIGRATIONS.length; version++) {
+            String[] migration = MIGRATIONS[version - 1];
+            // DDL auto-commits on MySQL, so each statement is recorded as soon as it succeeds
+            try (Statement stmt = conn.createStatement()) {
+                for (int i = 1; i < migration.length; i++) {
+                    stmt.execute(migration[i]);
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                pstmt.setInt(1, version);
+                pstmt.setString(2, migration[0]);
+                pstmt.executeUpdate();
+            }
+            System.out.println("✅ Applied migration " + version + ": " + migration[0]);
+            applied++;
+        }
+        return applied;
+    }
+
+    // Runs EXPLAIN on every query that should be indexed and returns a description of each one that isn't
+    public static List<String> verifyIndexes(Connection conn) throws SQLException {
+        List<String> problems = new ArrayList<>();
+        for (Object[] query : INDEXED_QUERIES) {
+            try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + query[1])) {
+                for (int i = 3; i < query.length; i++) {
+                    pstmt.setObject(i - 2, query[i]);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    String key = null;
+                    if (rs.next() && hasColumn(rs.getMetaData(), "key")) {
+                        key = rs.getString("key");
+                    }
+                    if (key == null || !key.equals(query[2])) {
+                        problems.add(query[0] + " uses " + (key == null ? "no index" : key) + " instead of " + query[2]);
+                    }
+                }
+            }
+        }
+        return problems;
+    }
+
+    private static boolean hasColumn(ResultSetMetaData meta, String name) throws SQLException {
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            if (meta.getColumnLabel(i).equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int applied = migrate(conn);
+            System.out.println("Schema is up to date (" + applied + " migrations applied).");
+            List<String> problems = verifyIndexes(conn);
+            if (problems.isEmpty()) {
+                System.out.println("✅ All indexed queries use their indexes.");
+            } else {
+                for (String problem : problems) {
+                    System.out.println("⚠ " + problem);
+                }
+                System.exit(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Migration failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import javax.swing.*;
+import java.awt.*;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// The application's single window. Screens are panels in a CardLayout, built the first time they are shown and
+// reused afterwards. Startup overlaps the first paint with warming up the PlaceStore (for the database: driver
+// loading, pool warm-up and schema migrations).
+// Also records time-to-first-frame and how long each screen switch takes to paint.
+public class ScreenManager {
+
+    public enum ScreenId {
+        HOME("Tourism Home Page", HomePage::new),
+        TABLE("Tourism Places Table", Table::new),
+        BOOKLET("Tourism Booklet", TourismBooklet::new),
+        NEARBY("Places Near You", NearbyPage::new);
+
+        final String title;
+        final Supplier<JComponent> factory;
+
+        ScreenId(String title, Supplier<JComponent> factory) {
+            this.title = title;
+            this.factory = factory;
+        }
+    }
+
+    // Screens that want to know when they come and go
+    public interface Screen {
+        default void onShow() {
+        }
+
+        default void onHide() {
+        }
+    }
+
+    private static ScreenManager instance;
+
+    private final JFrame frame = new JFrame();
+    private final CardLayout cards = new CardLayout();
+    private final JPanel deck;
+    private final Map<ScreenId, JComponent> screens = new EnumMap<>(ScreenId.class);
+    private final boolean logTimings = DatabaseConnection.getBoolean("ui.logTimings", false);
+    private final long launchNanos;
+    private ScreenId current;
+    private long switchStartNanos;
+    private ScreenId switchTarget;
+    private volatile long firstFrameMillis = -1;
+    private volatile long lastSwitchMillis = -1;
+
+    private ScreenManager(long launchNanos) {
+        this.launchNanos = launchNanos;
+        deck = new JPanel(cards) {
+            @Override
+            public void paint(Graphics g) {
+                super.paint(g);
+                painted();
+            }
+        };
+        frame.setContentPane(deck);
+        frame.setExtendedState(JFrame.MAXIMIZED_BOTH);
+        frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+    }
+
+    public static ScreenManager get() {
+        return instance;
+    }
+
+    // Entry point for every main(): starts background warm-up, then opens the window on the given screen
+    public static void launch(final ScreenId first) {
+        final long start = System.nanoTime();
+        warmUpInBackground();
+        SwingUtilities.invokeLater(() -> {
+            instance = new ScreenManager(start);
+            instance.show(first);
+            instance.frame.setVisible(true);
+        });
+    }
+
+    private static void warmUpInBackground() {
+        HomePage.loadBackgroundImage();
+        Thread warmUp = new Thread(() -> {
+            try {
+                PlaceStore.shared().warmUp();
+            } catch (SQLException e) {
+                System.err.println("⚠ Database warm-up failed: " + e.getMessage());
+            }
+        }, "startup-warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
+    }
+
+    public void show(ScreenId id) {
+        if (id == current) {
+            return;
+        }
+        switchStartNanos = System.nanoTime();
+        switchTarget = id;
+
+        JComponent screen = screens.get(id);
+        if (screen == null) {
+            screen = id.factory.get();
+            screens.put(id, screen);
+            deck.add(screen, id.name());
+        }
+        if (current != null && screens.get(current) instanceof Screen) {
+            ((Screen) screens.get(current)).onHide();
+        }
+        current = id;
+        frame.setTitle(id.title);
+        cards.show(deck, id.name());
+        if (screen instanceof Screen) {
+            ((Screen) screen).onShow();
+        }
+    }
+
+    public JFrame getFrame() {
+        return frame;
+    }
+
+    public long getFirstFrameMillis() {
+        return firstFrameMillis;
+    }
+
+    public long getLastSwitchMillis() {
+        return lastSwitchMillis;
+    }
+
+    private void painted() {
+        long now = System.nanoTime();
+        if (firstFrameMillis < 0) {
+            firstFrameMillis = (now - launchNanos) / 1_000_000;
+            if (logTimings) {
+                System.out.println("⏱ First frame after " + firstFrameMillis + " ms");
+            }
+        } else if (switchTarget != null) {
+            lastSwitchMillis = (now - switchStartNanos) / 1_000_000;
+            if (logTimings) {
+                System.out.println("⏱ Switched to " + switchTarget.name().toLowerCase() + " in " + lastSwitchMillis + " ms");
+            }
+        }
+        switchTarget = null;
+    }
+}
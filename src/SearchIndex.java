@@ -0,0 +1,504 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over place_name, city and description with BM25 ranking.
+// Every query word must match; a word matches the same term, a term it is a prefix of (only the last word,
+// since that's the one still being typed) or a term within a small edit distance.
+// Built once from the database, then kept current through put()/remove() as places change. Changes that arrive
+// while the build is still scanning are held back and applied after it, so an older copy the scan reads later
+// can't overwrite them.
+//
+// Places are numbered internally with dense doc numbers so scoring runs over primitive arrays.
+public class SearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_BOOST = 3;
+    private static final int CITY_BOOST = 2;
+    private static final int MAX_EXPANSIONS = 64;
+    private static final float PREFIX_WEIGHT = 0.8f;
+    private static final float FUZZY_WEIGHT = 0.5f;
+
+    private static final SearchIndex SHARED = new SearchIndex();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializes builds and invalidation; a lock rather than a monitor so a virtual thread waiting out a long
+    // scan doesn't pin its carrier
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final TreeSet<String> sortedTerms = new TreeSet<>(); // for prefix and fuzzy lookups
+    private final Map<Integer, Integer> docNumbers = new HashMap<>();
+    private int[] docIds = new int[1024];
+    private int[] docLengths = new int[1024];
+    private String[][] docTerms = new String[1024][];
+    private int[] freeDocs = new int[16];
+    private int freeCount;
+    private int maxDoc;
+    private long totalLength;
+    private final Map<Integer, Place> changedWhileBuilding = new LinkedHashMap<>(); // null: removed
+    private boolean building;
+    private volatile boolean built;
+
+    public static SearchIndex shared() {
+        return SHARED;
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    // Loads every place once; later changes arrive through put()/remove()
+    public void ensureBuilt() throws SQLException {
+        buildLock.lock();
+        try {
+            if (built) {
+                return;
+            }
+            setBuilding(true);
+            try {
+                PlaceStore.shared().scan(place -> put(place, true));
+                lock.writeLock().lock();
+                try {
+                    for (Map.Entry<Integer, Place> change : changedWhileBuilding.entrySet()) {
+                        if (change.getValue() == null) {
+                            removeLocked(change.getKey());
+                        } else {
+                            Map<String, Integer> counts = new HashMap<>();
+                            insertLocked(change.getValue(), counts, addTokens(counts, change.getValue()));
+                        }
+                    }
+                    building = false;
+                    built = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                setBuilding(false);
+            }
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private void setBuilding(boolean building) {
+        lock.writeLock().lock();
+        try {
+            this.building = building;
+            changedWhileBuilding.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // True if a change has to wait until the build has finished scanning
+    private boolean deferredLocked(int id, Place place) {
+        if (building) {
+            changedWhileBuilding.put(id, place);
+        }
+        return building;
+    }
+
+    // Drops everything so the next ensureBuilt() reloads, e.g. after ids were renumbered
+    public void invalidate() {
+        buildLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                terms.clear();
+                sortedTerms.clear();
+                docNumbers.clear();
+                Arrays.fill(docTerms, null);
+                freeCount = 0;
+                maxDoc = 0;
+                totalLength = 0;
+                built = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    public void put(Place place) {
+        put(place, false);
+    }
+
+    private void put(Place place, boolean scanned) {
+        Map<String, Integer> counts = new HashMap<>();
+        int length = addTokens(counts, place);
+
+        lock.writeLock().lock();
+        try {
+            if (scanned || !deferredLocked(place.getId(), place)) {
+                insertLocked(place, counts, length);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insertLocked(Place place, Map<String, Integer> counts, int length) {
+        removeLocked(place.getId());
+        int doc = allocateDoc();
+        String[] placeTerms = new String[counts.size()];
+        int t = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            Postings postings = terms.get(entry.getKey());
+            if (postings == null) {
+                postings = new Postings(entry.getKey());
+                terms.put(entry.getKey(), postings);
+                sortedTerms.add(entry.getKey());
+            }
+            postings.add(doc, entry.getValue());
+            placeTerms[t++] = postings.term; // share one String per term
+        }
+        docIds[doc] = place.getId();
+        docLengths[doc] = length;
+        docTerms[doc] = placeTerms;
+        docNumbers.put(place.getId(), doc);
+        totalLength += length;
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (!deferredLocked(id, null)) {
+                removeLocked(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(int id) {
+        Integer doc = docNumbers.remove(id);
+        if (doc == null) {
+            return;
+        }
+        totalLength -= docLengths[doc];
+        for (String term : docTerms[doc]) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(doc) && postings.size == 0) {
+                terms.remove(term);
+                sortedTerms.remove(term);
+            }
+        }
+        docTerms[doc] = null;
+        if (freeCount == freeDocs.length) {
+            freeDocs = Arrays.copyOf(freeDocs, freeCount * 2);
+        }
+        freeDocs[freeCount++] = doc;
+    }
+
+    private int allocateDoc() {
+        if (freeCount > 0) {
+            return freeDocs[--freeCount];
+        }
+        if (maxDoc == docIds.length) {
+            int capacity = maxDoc * 2;
+            docIds = Arrays.copyOf(docIds, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+        return maxDoc++;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docNumbers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns up to `limit` place ids, best match first
+    public int[] search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+
+        lock.readLock().lock();
+        try {
+            int docCount = docNumbers.size();
+            if (docCount == 0) {
+                return new int[0];
+            }
+            Query q = new Query(maxDoc, totalLength / (double) docCount, docCount);
+
+            // Start from the rarest word so the AND narrows the candidate set as early as possible
+            String prefixWord = words.get(words.size() - 1);
+            List<String> ordered = new ArrayList<>(words);
+            ordered.sort(Comparator.comparingInt(word -> {
+                Postings postings = terms.get(word);
+                return word.equals(prefixWord) || postings == null ? Integer.MAX_VALUE : postings.size;
+            }));
+
+            for (int w = 0; w < ordered.size(); w++) {
+                String word = ordered.get(w);
+                for (Map.Entry<String, Float> expansion : expand(word, word.equals(prefixWord)).entrySet()) {
+                    q.score(terms.get(expansion.getKey()), expansion.getValue(), w);
+                }
+                if (!q.retainMatched(w + 1)) {
+                    return new int[0];
+                }
+            }
+            return q.top(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The indexed terms a query word stands for, with their weights
+    private Map<String, Float> expand(String word, boolean prefix) {
+        Map<String, Float> expansions = new HashMap<>();
+        if (terms.containsKey(word)) {
+            expansions.put(word, 1f);
+        }
+        if (prefix) {
+            for (String term : sortedTerms.subSet(word, false, word + Character.MAX_VALUE, false)) {
+                if (expansions.size() >= MAX_EXPANSIONS) {
+                    break;
+                }
+                expansions.putIfAbsent(term, PREFIX_WEIGHT);
+            }
+        }
+        int maxEdits = word.length() >= 8 ? 2 : word.length() >= 4 ? 1 : 0;
+        if (maxEdits > 0) {
+            // Candidates share the first letter; typos there are rare and this keeps the scan small
+            String first = word.substring(0, 1);
+            for (String term : sortedTerms.subSet(first, true, first + Character.MAX_VALUE, false)) {
+                if (expansions.size() >= MAX_EXPANSIONS * 2) {
+                    break;
+                }
+                if (Math.abs(term.length() - word.length()) <= maxEdits && !expansions.containsKey(term)
+                        && withinEditDistance(word, term, maxEdits)) {
+                    expansions.put(term, FUZZY_WEIGHT);
+                }
+            }
+        }
+        return expansions;
+    }
+
+    // Per-query scratch state: a score and a matched-word count per doc number, plus the candidate list
+    private class Query {
+        final float[] scores;
+        final int[] matchedWords;
+        final double avgLength;
+        final int docCount;
+        int[] candidates = new int[64];
+        int candidateCount;
+
+        Query(int maxDoc, double avgLength, int docCount) {
+            scores = new float[maxDoc];
+            matchedWords = new int[maxDoc];
+            this.avgLength = avgLength;
+            this.docCount = docCount;
+        }
+
+        void score(Postings postings, float weight, int word) {
+            double idf = Math.log(1 + (docCount - postings.size + 0.5) / (postings.size + 0.5));
+            for (int i = 0; i < postings.size; i++) {
+                int doc = postings.docs[i];
+                int matched = matchedWords[doc];
+                if (matched != word && matched != word + 1) {
+                    continue; // missed an earlier word
+                }
+                if (matched == word) {
+                    matchedWords[doc] = word + 1;
+                    if (word == 0) {
+                        addCandidate(doc);
+                    }
+                }
+                double tf = postings.counts[i];
+                double norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * docLengths[doc] / avgLength));
+                scores[doc] += (float) (weight * idf * norm);
+            }
+        }
+
+        private void addCandidate(int doc) {
+            if (candidateCount == candidates.length) {
+                candidates = Arrays.copyOf(candidates, candidateCount * 2);
+            }
+            candidates[candidateCount++] = doc;
+        }
+
+        // Drops candidates that didn't match every word so far; false when none are left
+        boolean retainMatched(int words) {
+            int kept = 0;
+            for (int i = 0; i < candidateCount; i++) {
+                if (matchedWords[candidates[i]] == words) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            candidateCount = kept;
+            return kept > 0;
+        }
+
+        int[] top(int limit) {
+            // Min-heap of doc numbers ordered by score
+            int[] heap = new int[Math.min(limit, candidateCount)];
+            int size = 0;
+            for (int i = 0; i < candidateCount; i++) {
+                int doc = candidates[i];
+                if (size < heap.length) {
+                    heap[size] = doc;
+                    siftUp(heap, size++);
+                } else if (scores[doc] > scores[heap[0]]) {
+                    heap[0] = doc;
+                    siftDown(heap, size);
+                }
+            }
+            int[] ids = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                ids[i] = docIds[heap[0]];
+                heap[0] = heap[--size];
+                siftDown(heap, size);
+            }
+            return ids;
+        }
+
+        private void siftUp(int[] heap, int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (scores[heap[i]] >= scores[heap[parent]]) {
+                    return;
+                }
+                swap(heap, i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int size) {
+            int i = 0;
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && scores[heap[left]] < scores[heap[smallest]]) {
+                    smallest = left;
+                }
+                if (right < size && scores[heap[right]] < scores[heap[smallest]]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(heap, i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int[] heap, int a, int b) {
+            int t = heap[a];
+            heap[a] = heap[b];
+            heap[b] = t;
+        }
+    }
+
+    private static int addTokens(Map<String, Integer> counts, Place place) {
+        return addTokens(counts, place.getPlaceName(), NAME_BOOST)
+                + addTokens(counts, place.getCity(), CITY_BOOST)
+                + addTokens(counts, place.getDescription(), 1);
+    }
+
+    private static int addTokens(Map<String, Integer> counts, String text, int boost) {
+        int length = 0;
+        for (String token : tokenize(text)) {
+            counts.merge(token, boost, Integer::sum);
+            length++;
+        }
+        return length;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Levenshtein distance with an early exit once every cell in a row exceeds the limit
+    static boolean withinEditDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= max;
+    }
+
+    // Kept sorted by doc number, so removing a place finds its entry by binary search
+    private static class Postings {
+        final String term;
+        int[] docs = new int[2];
+        int[] counts = new int[2];
+        int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        // Doc numbers mostly grow, so this is usually an append
+        void add(int doc, int count) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            int i = size == 0 || docs[size - 1] < doc ? size : -Arrays.binarySearch(docs, 0, size, doc) - 1;
+            System.arraycopy(docs, i, docs, i + 1, size - i);
+            System.arraycopy(counts, i, counts, i + 1, size - i);
+            docs[i] = doc;
+            counts[i] = count;
+            size++;
+        }
+
+        boolean remove(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            if (i < 0) {
+                return false;
+            }
+            size--;
+            System.arraycopy(docs, i + 1, docs, i, size - i);
+            System.arraycopy(counts, i + 1, counts, i, size - i);
+            return true;
+        }
+    }
+}
@@ -1,240 +1,484 @@
-import javax.swing.*;
-import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.JTableHeader;
-import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.sql.*;
-
-public class Table extends JFrame {
-    private JTable table;
-    private DefaultTableModel tableModel;
-
-    public Table() {
-        setTitle("Tourism Places Table");
-        setExtendedState(JFrame.MAXIMIZED_BOTH);  // Full screen
-        setUndecorated(true); // No borders
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
-        setLayout(new BorderLayout());
-
-        JLabel mainHeader = new JLabel("Here's what you can see", JLabel.CENTER);
-        mainHeader.setFont(new Font("Serif", Font.BOLD, 18));
-        mainHeader.setForeground(new Color(0, 102, 204));
-        add(mainHeader, BorderLayout.NORTH);
-
-        tableModel = new DefaultTableModel(new String[]{"ID", "Place Name", "City", "Description"}, 0) {
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-
-        table = new JTable(tableModel);
-        table.setRowHeight(30);
-
-        JTableHeader header = table.getTableHeader();
-        header.setBackground(new Color(0, 102, 204));
-        header.setForeground(Color.WHITE);
-        header.setFont(new Font("Serif", Font.BOLD, 16));
-        header.setPreferredSize(new Dimension(header.getPreferredSize().width, 40));
-        ((DefaultTableCellRenderer) header.getDefaultRenderer()).setHorizontalAlignment(JLabel.CENTER);
-
-        add(new JScrollPane(table), BorderLayout.CENTER);
-
-        JPanel buttonPanel = new JPanel();
-        JButton deleteButton = new JButton("Delete");
-        JButton editButton = new JButton("Edit Description");
-        JButton backButton = new JButton("Back to Home");
-
-        buttonPanel.add(editButton);
-        buttonPanel.add(deleteButton);
-        buttonPanel.add(backButton);
-        add(buttonPanel, BorderLayout.SOUTH);
-
-        loadTableData();
-
-        deleteButton.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                deleteSelectedPlace();
-            }
-        });
-
-        editButton.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                editDescription();
-            }
-        });
-
-        backButton.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                new HomePage().setVisible(true);
-                dispose();
-            }
-        });
-    }
-
-    private void loadTableData() {
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM place ORDER BY id")) {
-
-            tableModel.setRowCount(0);
-            while (rs.next()) {
-                tableModel.addRow(new Object[]{
-                        rs.getInt("id"),
-                        rs.getString("place_name"),
-                        rs.getString("city"),
-                        rs.getString("description")
-                });
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error loading data: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
-    private void deleteSelectedPlace() {
-        int selectedRow = table.getSelectedRow();
-        if (selectedRow != -1) {
-            int placeId = (int) tableModel.getValueAt(selectedRow, 0);
-            int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete this place?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
-            if (confirm == JOptionPane.YES_OPTION) {
-                deletePlace(placeId);
-            }
-        } else {
-            JOptionPane.showMessageDialog(this, "Please select a row to delete.", "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
-    private void deletePlace(int placeId) {
-        String deleteQuery = "DELETE FROM place WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(deleteQuery)) {
-
-            pstmt.setInt(1, placeId);
-            int affectedRows = pstmt.executeUpdate();
-
-            if (affectedRows > 0) {
-                reassignIds(conn);
-                showRedPopup("✅ Place deleted successfully!");
-                loadTableData();
-            } else {
-                JOptionPane.showMessageDialog(this, "⚠ Place not found!", "Warning", JOptionPane.WARNING_MESSAGE);
-            }
-
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "❌ Error deleting place: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
-    private void reassignIds(Connection conn) throws SQLException {
-        String selectQuery = "SELECT id FROM place ORDER BY id";
-        String updateQuery = "UPDATE place SET id = ? WHERE id = ?";
-        String resetAutoIncrement = "ALTER TABLE place AUTO_INCREMENT = 1";
-
-        conn.setAutoCommit(false);
-
-        try (
-                Statement stmt = conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
-                ResultSet rs = stmt.executeQuery(selectQuery)
-        ) {
-            int newId = 1;
-            while (rs.next()) {
-                int oldId = rs.getInt("id");
-                if (oldId != newId) {
-                    try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
-                        pstmt.setInt(1, -newId); // Temporarily set to avoid conflict
-                        pstmt.setInt(2, oldId);
-                        pstmt.executeUpdate();
-                    }
-                }
-                newId++;
-            }
-
-            // Convert negative IDs to correct positive ones
-            try (Statement fixStmt = conn.createStatement();
-                 ResultSet fixRs = fixStmt.executeQuery("SELECT id FROM place WHERE id < 0 ORDER BY id")) {
-                newId = 1;
-                while (fixRs.next()) {
-                    int tempId = fixRs.getInt("id");
-                    try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
-                        pstmt.setInt(1, newId++);
-                        pstmt.setInt(2, tempId);
-                        pstmt.executeUpdate();
-                    }
-                }
-            }
-
-            try (Statement alterStmt = conn.createStatement()) {
-                alterStmt.execute(resetAutoIncrement);
-            }
-
-            conn.commit();
-
-        } catch (SQLException ex) {
-            conn.rollback();
-            throw ex;
-        } finally {
-            conn.setAutoCommit(true);
-        }
-    }
-
-    private void editDescription() {
-        int selectedRow = table.getSelectedRow();
-        if (selectedRow != -1) {
-            int placeId = (int) tableModel.getValueAt(selectedRow, 0);
-            String currentDescription = (String) tableModel.getValueAt(selectedRow, 3);
-
-            String newDescription = JOptionPane.showInputDialog(this, "Edit Description:", currentDescription);
-
-            if (newDescription != null && !newDescription.trim().isEmpty()) {
-                updateDescription(placeId, newDescription.trim());
-            }
-        } else {
-            JOptionPane.showMessageDialog(this, "Please select a row to edit.", "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
-    private void updateDescription(int id, String newDescription) {
-        String updateQuery = "UPDATE place SET description=? WHERE id=?";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
-
-            pstmt.setString(1, newDescription);
-            pstmt.setInt(2, id);
-            int rows = pstmt.executeUpdate();
-
-            if (rows > 0) {
-                JOptionPane.showMessageDialog(this, "✅ Description updated successfully!");
-                loadTableData();
-            } else {
-                JOptionPane.showMessageDialog(this, "⚠ Update failed!", "Error", JOptionPane.ERROR_MESSAGE);
-            }
-
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "❌ Error updating: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
-    private void showRedPopup(String message) {
-        JLabel label = new JLabel(message, JLabel.CENTER);
-        label.setOpaque(true);
-        label.setBackground(Color.RED);
-        label.setForeground(Color.WHITE);
-        label.setFont(new Font("Arial", Font.BOLD, 14));
-
-        JOptionPane.showMessageDialog(this, label, "Deleted", JOptionPane.INFORMATION_MESSAGE);
-    }
-
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(new Runnable() {
-            public void run() {
-                new Table().setVisible(true);
-            }
-        });
-    }
-}
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.JTableHeader;
+import javax.swing.table.TableColumn;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+public class Table extends JPanel implements ScreenManager.Screen {
+    private static final int SEARCH_LIMIT = 5000;
+
+    private JTable table;
+    private PlaceTableModel tableModel;
+    private AsyncDb db;
+    private JTextField searchField;
+    private JTextArea detailArea;
+    private JList<CityFacet> cityList;
+    private DefaultListModel<CityFacet> cityListModel;
+    private boolean refillingCities; // loadCityFacets restoring the selection, not the user picking a city
+    private final ChangeFeed.Listener changeListener = this::placesChanged;
+
+    public Table() {
+        setLayout(new BorderLayout());
+
+        JLabel mainHeader = new JLabel("Here's what you can see", JLabel.CENTER);
+        mainHeader.setFont(new Font("Serif", Font.BOLD, 18));
+        mainHeader.setForeground(new Color(0, 102, 204));
+
+        // Live search: filters the table as the user types
+        searchField = new JTextField(30);
+        final Timer searchDelay = new Timer(150, e -> search());
+        searchDelay.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                searchDelay.restart();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                searchDelay.restart();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                searchDelay.restart();
+            }
+        });
+        JPanel searchPanel = new JPanel();
+        searchPanel.add(new JLabel("🔍 Search:"));
+        searchPanel.add(searchField);
+
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.add(mainHeader, BorderLayout.NORTH);
+        topPanel.add(searchPanel, BorderLayout.SOUTH);
+        add(topPanel, BorderLayout.NORTH);
+
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setString("Loading…");
+        progressBar.setStringPainted(true);
+        db = new AsyncDb(progressBar);
+
+        tableModel = new PlaceTableModel(db);
+
+        int thumbnailSize = PhotoStore.shared().getThumbnailSize();
+        table = new JTable(tableModel);
+        table.setRowHeight(Math.max(30, thumbnailSize + 4));
+        // Ids stay stable across deletes; users see the row number, the id stays in the model
+        table.removeColumn(table.getColumnModel().getColumn(PlaceTableModel.ID_COLUMN));
+        // Thumbnails come from an off-heap cache; scrolling never decodes a photo on the EDT
+        table.moveColumn(table.convertColumnIndexToView(PlaceTableModel.PHOTO_COLUMN), 1);
+        TableColumn photoColumn = table.getColumnModel().getColumn(1);
+        photoColumn.setCellRenderer(new ThumbnailRenderer(PhotoStore.shared(), ThumbnailCache.shared()));
+        photoColumn.setPreferredWidth(thumbnailSize + 16);
+        photoColumn.setMaxWidth(thumbnailSize + 16);
+        // Cells show a fitted preview; the whole description is only loaded for the selected row
+        table.getColumnModel().getColumn(table.convertColumnIndexToView(PlaceTableModel.DESCRIPTION_COLUMN))
+                .setCellRenderer(new DescriptionRenderer(row -> DescriptionRenderer.placeKey(tableModel.getPlaceAt(row))));
+        table.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showSelectedDetail();
+            }
+        });
+
+        JTableHeader header = table.getTableHeader();
+        header.setBackground(new Color(0, 102, 204));
+        header.setForeground(Color.WHITE);
+        header.setFont(new Font("Serif", Font.BOLD, 16));
+        header.setPreferredSize(new Dimension(header.getPreferredSize().width, 40));
+        ((DefaultTableCellRenderer) header.getDefaultRenderer()).setHorizontalAlignment(JLabel.CENTER);
+
+        detailArea = new JTextArea(4, 40);
+        detailArea.setEditable(false);
+        detailArea.setLineWrap(true);
+        detailArea.setWrapStyleWord(true);
+        detailArea.setFont(new Font("Serif", Font.PLAIN, 15));
+        JScrollPane detailScroll = new JScrollPane(detailArea);
+        detailScroll.setBorder(BorderFactory.createTitledBorder("Description"));
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(table), detailScroll);
+        split.setResizeWeight(0.8);
+        add(split, BorderLayout.CENTER);
+
+        // City facets: per-city counts; picking one shows only that city
+        cityListModel = new DefaultListModel<>();
+        cityList = new JList<>(cityListModel);
+        cityList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        cityList.setFont(new Font("Serif", Font.PLAIN, 15));
+        cityList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting() && !refillingCities) {
+                CityFacet facet = cityList.getSelectedValue();
+                if (facet != null) {
+                    searchField.setText("");
+                    tableModel.setCity(facet.city);
+                }
+            }
+        });
+        JScrollPane cityScroll = new JScrollPane(cityList);
+        cityScroll.setPreferredSize(new Dimension(220, 0));
+        cityScroll.setBorder(BorderFactory.createTitledBorder("Cities"));
+        add(cityScroll, BorderLayout.WEST);
+
+        JPanel buttonPanel = new JPanel();
+        JButton deleteButton = new JButton("Delete");
+        JButton editButton = new JButton("Edit Description");
+        JButton photosButton = new JButton("📷 Add Photos…");
+        JButton exportButton = new JButton("Export…");
+        JButton nearbyButton = new JButton("Nearby…");
+        JButton backButton = new JButton("Back to Home");
+
+        buttonPanel.add(editButton);
+        buttonPanel.add(deleteButton);
+        buttonPanel.add(photosButton);
+        buttonPanel.add(exportButton);
+        buttonPanel.add(nearbyButton);
+        buttonPanel.add(backButton);
+        buttonPanel.add(progressBar);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+
+        deleteButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                deleteSelectedPlace();
+            }
+        });
+
+        editButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                editDescription();
+            }
+        });
+
+        photosButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                addPhotos();
+            }
+        });
+
+        exportButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                exportPlaces();
+            }
+        });
+
+        nearbyButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                ScreenManager.get().show(ScreenManager.ScreenId.NEARBY);
+            }
+        });
+
+        backButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                ScreenManager.get().show(ScreenManager.ScreenId.HOME);
+            }
+        });
+    }
+
+    // Reloads on every visit; unchanged data comes straight from the PlaceRepository cache.
+    // While visible, changes made by other clients are applied as they arrive.
+    @Override
+    public void onShow() {
+        loadTableData();
+        loadCityFacets();
+        loadPhotoIndex();
+        ChangeFeed.shared().addListener(changeListener);
+    }
+
+    // Reads nobody will see are dropped; edits, deletes and exports run to completion
+    @Override
+    public void onHide() {
+        ChangeFeed.shared().removeListener(changeListener);
+        db.cancel("count");
+        db.cancel("facets");
+        db.cancel("search");
+        db.cancel("detail");
+    }
+
+    private void placesChanged(ChangeFeed.Changes changes) {
+        if (changes.reload) {
+            loadTableData();
+            loadCityFacets();
+            return;
+        }
+        for (int id : changes.deleted) {
+            tableModel.placeDeleted(id);
+        }
+        for (Place place : changes.inserted) {
+            tableModel.placeInserted(place);
+        }
+        for (Place place : changes.updated) {
+            tableModel.placeUpdated(place);
+        }
+        if (!changes.inserted.isEmpty() || !changes.deleted.isEmpty()) {
+            loadCityFacets();
+        }
+        showSelectedDetail();
+    }
+
+    // Loads the selected place's whole description into the pane below the table
+    private void showSelectedDetail() {
+        int selectedRow = table.getSelectedRow();
+        Place selected = selectedRow == -1 ? null : tableModel.getPlaceAt(selectedRow);
+        if (selected == null) {
+            db.cancel("detail");
+            detailArea.setText("");
+            return;
+        }
+        db.submitLatest("detail", () -> PlaceService.shared().get(selected.getId()), place -> {
+            detailArea.setText(place == null ? "" : place.getDescription());
+            detailArea.setCaretPosition(0);
+        }, ex -> ex.printStackTrace());
+    }
+
+    private void loadTableData() {
+        tableModel.refresh(ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Error loading data: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void loadCityFacets() {
+        db.submitLatest("facets", () -> PlaceRepository.shared().cityCounts(), counts -> {
+            CityFacet selected = cityList.getSelectedValue();
+            String selectedCity = selected == null ? null : selected.city;
+            int total = 0;
+            for (int count : counts.values()) {
+                total += count;
+            }
+            refillingCities = true;
+            try {
+                cityListModel.clear();
+                cityListModel.addElement(new CityFacet(null, total));
+                for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                    cityListModel.addElement(new CityFacet(entry.getKey(), entry.getValue()));
+                }
+                for (int i = 0; i < cityListModel.size(); i++) {
+                    if (selected != null && Objects.equals(cityListModel.get(i).city, selectedCity)) {
+                        cityList.setSelectedIndex(i);
+                    }
+                }
+            } finally {
+                refillingCities = false;
+            }
+        }, ex -> ex.printStackTrace());
+    }
+
+    // Which places have photos; until it's read the photo column stays empty
+    private void loadPhotoIndex() {
+        if (PhotoStore.shared().isLoaded()) {
+            return;
+        }
+        db.submit("photos", () -> {
+            PhotoStore.shared().ensureLoaded();
+            return null;
+        }, loaded -> table.repaint(), ex -> ex.printStackTrace());
+    }
+
+    private void search() {
+        final String query = searchField.getText().trim();
+        if (query.isEmpty()) {
+            db.cancel("search");
+            if (tableModel.isFiltered()) {
+                tableModel.setFilter(null);
+            }
+            return;
+        }
+        cityList.clearSelection();
+        db.submitLatest("search", () -> PlaceService.shared().search(query, SEARCH_LIMIT), ids -> tableModel.setFilter(ids), ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Error searching: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void deleteSelectedPlace() {
+        int selectedRow = table.getSelectedRow();
+        if (selectedRow != -1) {
+            Place place = tableModel.getPlaceAt(selectedRow);
+            if (place == null) {
+                JOptionPane.showMessageDialog(this, "Still loading, please try again.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete this place?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
+            if (confirm == JOptionPane.YES_OPTION) {
+                deletePlace(place);
+            }
+        } else {
+            JOptionPane.showMessageDialog(this, "Please select a row to delete.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void deletePlace(Place place) {
+        db.submit("delete:" + place.getId(), () -> PlaceService.shared().delete(place), deleted -> {
+            if (deleted) {
+                showRedPopup("✅ Place deleted successfully!");
+            } else {
+                JOptionPane.showMessageDialog(this, "⚠ Place not found! Someone else may have deleted it.", "Warning", JOptionPane.WARNING_MESSAGE);
+            }
+            tableModel.placeDeleted(place.getId());
+            loadCityFacets();
+        }, ex -> {
+            if (ex instanceof PlaceConflictException) {
+                Place current = ((PlaceConflictException) ex).getCurrent();
+                tableModel.placeUpdated(current);
+                JOptionPane.showMessageDialog(this, "⚠ Someone else changed " + current.getPlaceName()
+                        + " while you were viewing it, so it was not deleted.\nThe table now shows their changes; delete again if you still want to.",
+                        "Place Changed", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Error deleting place: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void editDescription() {
+        int selectedRow = table.getSelectedRow();
+        if (selectedRow != -1) {
+            Place row = tableModel.getPlaceAt(selectedRow);
+            if (row == null) {
+                JOptionPane.showMessageDialog(this, "Still loading, please try again.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            // The table only holds a preview, so fetch the whole text to edit
+            db.submit("edit:" + row.getId(), () -> PlaceService.shared().get(row.getId()), place -> {
+                if (place == null) {
+                    JOptionPane.showMessageDialog(this, "⚠ Place not found! Someone else may have deleted it.", "Warning", JOptionPane.WARNING_MESSAGE);
+                    tableModel.placeDeleted(row.getId());
+                    loadCityFacets();
+                    return;
+                }
+                if (place.getVersion() != row.getVersion()) {
+                    tableModel.placeUpdated(place);
+                }
+                String newDescription = JOptionPane.showInputDialog(this, "Edit Description:", place.getDescription());
+
+                if (newDescription != null && !newDescription.trim().isEmpty()) {
+                    updateDescription(place, newDescription.trim());
+                }
+            }, ex -> {
+                ex.printStackTrace();
+                JOptionPane.showMessageDialog(this, "Error loading data: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            });
+        } else {
+            JOptionPane.showMessageDialog(this, "Please select a row to edit.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // `seen` is the version the user edited; if someone else saved first they pick which text to keep
+    private void updateDescription(Place seen, String newDescription) {
+        db.submit("update:" + seen.getId() + ":" + newDescription, () -> PlaceService.shared().editDescription(seen, newDescription), updated -> {
+            if (updated != null) {
+                JOptionPane.showMessageDialog(this, "✅ Description updated successfully!");
+                tableModel.placeUpdated(updated);
+                showSelectedDetail();
+            } else {
+                JOptionPane.showMessageDialog(this, "⚠ Update failed! Someone else deleted this place.", "Error", JOptionPane.ERROR_MESSAGE);
+                tableModel.placeDeleted(seen.getId());
+                loadCityFacets();
+            }
+        }, ex -> {
+            if (ex instanceof PlaceConflictException) {
+                Place current = ((PlaceConflictException) ex).getCurrent();
+                tableModel.placeUpdated(current);
+                int choice = JOptionPane.showConfirmDialog(this, "⚠ Someone else changed the description of "
+                                + current.getPlaceName() + " to:\n\n" + current.getDescription()
+                                + "\n\nReplace it with yours?\n\n" + newDescription,
+                        "Place Changed", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (choice == JOptionPane.YES_OPTION) {
+                    updateDescription(current, newDescription);
+                }
+                return;
+            }
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Error updating: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    // Copies the chosen pictures into the PhotoStore; their thumbnails are made in the background and show up
+    // in the table as they are ready
+    private void addPhotos() {
+        int selectedRow = table.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a place to add photos to.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        Place place = tableModel.getPlaceAt(selectedRow);
+        if (place == null) {
+            JOptionPane.showMessageDialog(this, "Still loading, please try again.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Add photos of " + place.getPlaceName());
+        chooser.setMultiSelectionEnabled(true);
+        chooser.setFileFilter(new FileNameExtensionFilter("Photos", "jpg", "jpeg", "png", "gif", "bmp"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File[] files = chooser.getSelectedFiles();
+        db.submit("photos:" + place.getId() + ":" + Arrays.toString(files), () -> {
+            List<CompletableFuture<String>> thumbnails = new ArrayList<>();
+            for (File file : files) {
+                thumbnails.add(PhotoStore.shared().attach(place.getId(), file));
+            }
+            return thumbnails;
+        }, thumbnails -> {
+            JOptionPane.showMessageDialog(this, "✅ Added " + files.length + " photo(s) to " + place.getPlaceName());
+            CompletableFuture.allOf(thumbnails.toArray(new CompletableFuture<?>[0]))
+                    .whenComplete((done, ex) -> SwingUtilities.invokeLater(table::repaint));
+        }, ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Could not add photos: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void exportPlaces() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export places (.csv, .jsonl or " + ColumnarPlaceFile.EXTENSION + ")");
+        chooser.setSelectedFile(new File("places.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        db.submit("export:" + file, () -> PlaceExporter.export(file, PlaceExporter.Format.forFile(file)), rows ->
+                JOptionPane.showMessageDialog(this, "✅ Exported " + rows + " places to " + file.getName()), ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Export failed: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void showRedPopup(String message) {
+        JLabel label = new JLabel(message, JLabel.CENTER);
+        label.setOpaque(true);
+        label.setBackground(Color.RED);
+        label.setForeground(Color.WHITE);
+        label.setFont(new Font("Arial", Font.BOLD, 14));
+
+        JOptionPane.showMessageDialog(this, label, "Deleted", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private static class CityFacet {
+        final String city; // null means all cities
+        final int count;
+
+        CityFacet(String city, int count) {
+            this.city = city;
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return (city == null ? "All cities" : city) + " (" + count + ")";
+        }
+    }
+
+    public static void main(String[] args) {
+        ScreenManager.launch(ScreenManager.ScreenId.TABLE);
+    }
+}
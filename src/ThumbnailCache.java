@@ -0,0 +1,104 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Decoded thumbnails in a fixed block of off-heap memory, least recently painted out first, so a table with
+// thousands of photos neither grows the Java heap nor decodes a PNG for every repaint. The block is cut into
+// equal slots of one thumbnail's ARGB pixels; painting copies a slot into one reusable image and draws that.
+public class ThumbnailCache {
+    private static ThumbnailCache shared;
+
+    private final int size;
+    private final int slotInts;
+    private final IntBuffer pixels;
+    private final Map<String, Integer> slots = new LinkedHashMap<>(256, 0.75f, true); // photo hash -> slot
+    private final ArrayDeque<Integer> free = new ArrayDeque<>();
+    private final BufferedImage scratch;
+    private final int[] scratchPixels;
+    private long hits;
+    private long misses;
+
+    // Holds as many size x size thumbnails as fit in capacityBytes (at least one)
+    public ThumbnailCache(long capacityBytes, int size) {
+        this.size = size;
+        this.slotInts = 2 + size * size; // width, height, pixels
+        int slotCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 4 / slotInts, capacityBytes / 4 / slotInts));
+        this.pixels = ByteBuffer.allocateDirect(slotCount * slotInts * 4).asIntBuffer();
+        for (int slot = 0; slot < slotCount; slot++) {
+            free.add(slot);
+        }
+        this.scratch = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        this.scratchPixels = ((DataBufferInt) scratch.getRaster().getDataBuffer()).getData();
+    }
+
+    public static synchronized ThumbnailCache shared() {
+        if (shared == null) {
+            shared = new ThumbnailCache(DatabaseConnection.getInt("photos.thumbnailCacheBytes", 16 << 20),
+                    PhotoStore.shared().getThumbnailSize());
+        }
+        return shared;
+    }
+
+    public synchronized boolean contains(String hash) {
+        return slots.containsKey(hash);
+    }
+
+    // Draws the thumbnail centred in a size x size box at (x, y); false if it isn't cached
+    public synchronized boolean paint(String hash, Graphics g, int x, int y) {
+        Integer slot = slots.get(hash);
+        if (slot == null) {
+            misses++;
+            return false;
+        }
+        hits++;
+        int base = slot * slotInts;
+        int width = pixels.get(base);
+        int height = pixels.get(base + 1);
+        // Row by row into the scratch image, which is size pixels wide
+        for (int row = 0; row < height; row++) {
+            pixels.position(base + 2 + row * width);
+            pixels.get(scratchPixels, row * size, width);
+        }
+        g.drawImage(scratch, x + (size - width) / 2, y + (size - height) / 2, x + (size - width) / 2 + width,
+                y + (size - height) / 2 + height, 0, 0, width, height, null);
+        return true;
+    }
+
+    // Copies the image (cut to size x size) into a slot, dropping the least recently painted thumbnail if full
+    public synchronized void put(String hash, BufferedImage image) {
+        Integer slot = slots.get(hash);
+        if (slot == null) {
+            if (free.isEmpty()) {
+                Iterator<Integer> eldest = slots.values().iterator();
+                free.add(eldest.next());
+                eldest.remove();
+            }
+            slot = free.poll();
+            slots.put(hash, slot);
+        }
+        int width = Math.min(size, image.getWidth());
+        int height = Math.min(size, image.getHeight());
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+        int base = slot * slotInts;
+        pixels.put(base, width);
+        pixels.put(base + 1, height);
+        pixels.position(base + 2);
+        pixels.put(argb);
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ThumbnailCache[" + slots.size() + "/" + (slots.size() + free.size()) + " thumbnails, hits=" + hits
+                + ", misses=" + misses + "]";
+    }
+}
@@ -0,0 +1,67 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.util.HashSet;
+import java.util.Set;
+
+// Shows a photo thumbnail for cells whose value is a photo hash (see PhotoStore.cover). Thumbnails are painted
+// from the ThumbnailCache; one that isn't cached yet leaves a grey box and is read on the photo pool, and the
+// table repaints when it arrives. Nothing is decoded on the EDT.
+public class ThumbnailRenderer extends DefaultTableCellRenderer implements Icon {
+    private static final Color PLACEHOLDER = new Color(230, 230, 230);
+
+    private final PhotoStore photos;
+    private final ThumbnailCache cache;
+    private final Set<String> requested = new HashSet<>(); // loading, or failed to load
+    private String hash;
+
+    public ThumbnailRenderer(PhotoStore photos, ThumbnailCache cache) {
+        this.photos = photos;
+        this.cache = cache;
+        setHorizontalAlignment(JLabel.CENTER);
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+                                                   int row, int column) {
+        super.getTableCellRendererComponent(table, null, isSelected, hasFocus, row, column);
+        hash = (String) value;
+        setIcon(hash == null ? null : this);
+        if (hash != null && !cache.contains(hash) && requested.add(hash)) {
+            load(table, hash);
+        }
+        return this;
+    }
+
+    @Override
+    public void paintIcon(Component c, Graphics g, int x, int y) {
+        if (!cache.paint(hash, g, x, y)) {
+            g.setColor(PLACEHOLDER);
+            g.fillRect(x, y, getIconWidth(), getIconHeight());
+        }
+    }
+
+    @Override
+    public int getIconWidth() {
+        return photos.getThumbnailSize();
+    }
+
+    @Override
+    public int getIconHeight() {
+        return photos.getThumbnailSize();
+    }
+
+    private void load(JTable table, String hash) {
+        photos.thumbnail(hash).whenComplete((image, ex) -> {
+            if (ex != null || image == null) {
+                System.err.println("⚠ Could not load the thumbnail of photo " + hash + (ex == null ? "" : ": " + ex.getMessage()));
+                return; // stays in `requested`, so it isn't retried on every repaint
+            }
+            cache.put(hash, image);
+            SwingUtilities.invokeLater(() -> {
+                requested.remove(hash);
+                table.repaint();
+            });
+        });
+    }
+}
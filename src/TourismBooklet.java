@@ -1,160 +1,248 @@
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.sql.*;
-
-public class TourismBooklet extends JFrame {
-    private JTextArea textArea;
-    private JTextField placeField, cityField;
-    private JTextArea descriptionArea;
-
-    public TourismBooklet() {
-        // Set title and make the window full screen
-        setTitle("Tourism Booklet");
-        setExtendedState(JFrame.MAXIMIZED_BOTH);  // Maximizes the window
-        setUndecorated(true); // Removes window borders and title bar
-        setLocationRelativeTo(null); // Center the window on the screen
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
-        setLayout(new BorderLayout());
-
-        // Display Area
-        textArea = new JTextArea();
-        textArea.setEditable(false);
-        textArea.setBackground(new Color(224, 255, 255));
-        textArea.setFont(new Font("Serif", Font.PLAIN, 14));
-        add(new JScrollPane(textArea), BorderLayout.CENTER);
-
-        // Input Fields Panel
-        JPanel inputPanel = new JPanel(new GridLayout(4, 2, 5, 5));
-        inputPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-
-        inputPanel.add(new JLabel("Place Name:"));
-        placeField = createTextField();
-        inputPanel.add(placeField);
-
-        inputPanel.add(new JLabel("City:"));
-        cityField = createTextField();
-        inputPanel.add(cityField);
-
-        inputPanel.add(new JLabel("Description:"));
-        descriptionArea = new JTextArea(3, 20);
-        descriptionArea.setLineWrap(true);
-        descriptionArea.setWrapStyleWord(true);
-        descriptionArea.setBackground(new Color(255, 239, 213));
-        inputPanel.add(new JScrollPane(descriptionArea));
-
-        add(inputPanel, BorderLayout.NORTH);
-
-        // Button Panel
-        JPanel buttonPanel = new JPanel();
-        JButton loadButton = createButton("Load Places");
-        JButton addButton = createButton("Add Place");
-        JButton backButton = createButton("Back to Home");
-
-        buttonPanel.add(loadButton);
-        buttonPanel.add(addButton);
-        buttonPanel.add(backButton);
-        add(buttonPanel, BorderLayout.SOUTH);
-
-        // Button Actions
-        loadButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                loadLatestPlace(); // Only show latest added place
-            }
-        });
-
-        addButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                addPlace();
-            }
-        });
-
-        backButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                new HomePage().setVisible(true);
-                dispose();
-            }
-        });
-    }
-
-    private JTextField createTextField() {
-        JTextField textField = new JTextField();
-        textField.setBackground(new Color(255, 239, 213));
-        return textField;
-    }
-
-    private JButton createButton(String text) {
-        JButton button = new JButton(text);
-        button.setBackground(new Color(30, 144, 255));
-        button.setForeground(Color.WHITE);
-        button.setFocusPainted(false);
-        button.setPreferredSize(new Dimension(150, 30));
-        return button;
-    }
-
-    private void loadLatestPlace() {
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM place ORDER BY id DESC LIMIT 1")) {
-
-            textArea.setText("📍 **Latest Tourism Place** 📍\n\n");
-
-            if (rs.next()) {
-                textArea.append("🔹 Place: " + rs.getString("place_name") + "\n");
-                textArea.append("🏙️  City: " + rs.getString("city") + "\n");
-                textArea.append("📝 Description: " + rs.getString("description") + "\n");
-                textArea.append("————————————————————————\n");
-            } else {
-                textArea.setText("ℹ️ No places found.");
-            }
-
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "❌ Error loading latest place!\n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
-    private void addPlace() {
-        String place = placeField.getText().trim();
-        String city = cityField.getText().trim();
-        String description = descriptionArea.getText().trim();
-
-        if (place.isEmpty() || city.isEmpty() || description.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "⚠ All fields are required!", "Warning", JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-
-        String query = "INSERT INTO place (place_name, city, description) VALUES (?, ?, ?)";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, place);
-            pstmt.setString(2, city);
-            pstmt.setString(3, description);
-            pstmt.executeUpdate();
-
-            JOptionPane.showMessageDialog(this, "🎉 New place added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-
-            // Clear fields
-            placeField.setText("");
-            cityField.setText("");
-            descriptionArea.setText("");
-
-            // Clear display area
-            textArea.setText("");
-
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "❌ Error adding place!\n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new TourismBooklet().setVisible(true));
-    }
-}
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+
+public class TourismBooklet extends JPanel implements ScreenManager.Screen {
+    private JTextArea textArea;
+    private JTextField placeField, cityField;
+    private JTextField latitudeField, longitudeField;
+    private JTextArea descriptionArea;
+    private AsyncDb db;
+
+    public TourismBooklet() {
+        setLayout(new BorderLayout());
+
+        // Display Area
+        textArea = new JTextArea();
+        textArea.setEditable(false);
+        textArea.setBackground(new Color(224, 255, 255));
+        textArea.setFont(new Font("Serif", Font.PLAIN, 14));
+        add(new JScrollPane(textArea), BorderLayout.CENTER);
+
+        // Input Fields Panel
+        JPanel inputPanel = new JPanel(new GridLayout(4, 2, 5, 5));
+        inputPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        inputPanel.add(new JLabel("Place Name:"));
+        placeField = createTextField();
+        inputPanel.add(placeField);
+
+        inputPanel.add(new JLabel("City:"));
+        cityField = createTextField();
+        inputPanel.add(cityField);
+
+        inputPanel.add(new JLabel("Description:"));
+        descriptionArea = new JTextArea(3, 20);
+        descriptionArea.setLineWrap(true);
+        descriptionArea.setWrapStyleWord(true);
+        descriptionArea.setBackground(new Color(255, 239, 213));
+        inputPanel.add(new JScrollPane(descriptionArea));
+
+        // Optional; located places show up in the Nearby view
+        inputPanel.add(new JLabel("Latitude, Longitude (optional):"));
+        JPanel locationPanel = new JPanel(new GridLayout(1, 2, 5, 0));
+        latitudeField = createTextField();
+        longitudeField = createTextField();
+        locationPanel.add(latitudeField);
+        locationPanel.add(longitudeField);
+        inputPanel.add(locationPanel);
+
+        add(inputPanel, BorderLayout.NORTH);
+
+        // Button Panel
+        JPanel buttonPanel = new JPanel();
+        JButton loadButton = createButton("Load Places");
+        JButton addButton = createButton("Add Place");
+        JButton importButton = createButton("Import File…");
+        JButton bookletButton = createButton("Make Booklet");
+        JButton backButton = createButton("Back to Home");
+
+        buttonPanel.add(loadButton);
+        buttonPanel.add(addButton);
+        buttonPanel.add(importButton);
+        buttonPanel.add(bookletButton);
+        buttonPanel.add(backButton);
+
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        buttonPanel.add(progressBar);
+        db = new AsyncDb(progressBar);
+
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        // Button Actions
+        loadButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                loadLatestPlace(); // Only show latest added place
+            }
+        });
+
+        addButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                addPlace();
+            }
+        });
+
+        importButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                importPlaces();
+            }
+        });
+
+        bookletButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                makeBooklet();
+            }
+        });
+
+        backButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                ScreenManager.get().show(ScreenManager.ScreenId.HOME);
+            }
+        });
+    }
+
+    // An add or import in flight keeps running; only the read is dropped
+    @Override
+    public void onHide() {
+        db.cancel("latest");
+    }
+
+    private JTextField createTextField() {
+        JTextField textField = new JTextField();
+        textField.setBackground(new Color(255, 239, 213));
+        return textField;
+    }
+
+    private JButton createButton(String text) {
+        JButton button = new JButton(text);
+        button.setBackground(new Color(30, 144, 255));
+        button.setForeground(Color.WHITE);
+        button.setFocusPainted(false);
+        button.setPreferredSize(new Dimension(150, 30));
+        return button;
+    }
+
+    private void loadLatestPlace() {
+        db.submitLatest("latest", () -> PlaceService.shared().latest(), this::showLatestPlace, ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Error loading latest place!\n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void showLatestPlace(Place latest) {
+        textArea.setText("📍 **Latest Tourism Place** 📍\n\n");
+
+        if (latest != null) {
+            textArea.append("🔹 Place: " + latest.getPlaceName() + "\n");
+            textArea.append("🏙️  City: " + latest.getCity() + "\n");
+            textArea.append("📝 Description: " + latest.getDescription() + "\n");
+            textArea.append("————————————————————————\n");
+        } else {
+            textArea.setText("ℹ️ No places found.");
+        }
+    }
+
+    private void addPlace() {
+        String place = placeField.getText().trim();
+        String city = cityField.getText().trim();
+        String description = descriptionArea.getText().trim();
+        double latitude;
+        double longitude;
+        try {
+            latitude = parseCoordinate(latitudeField.getText());
+            longitude = parseCoordinate(longitudeField.getText());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "⚠ Latitude and longitude must be numbers, e.g. 26.9124 and 75.7873", "Warning", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        // Keyed on the whole form, so double clicks while the insert runs don't add the place twice
+        db.submit("add:" + place + "|" + city + "|" + description, () -> PlaceService.shared().add(place, city, description, latitude, longitude), added -> {
+            JOptionPane.showMessageDialog(this, "🎉 New place added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+
+            // Clear fields
+            placeField.setText("");
+            cityField.setText("");
+            descriptionArea.setText("");
+            latitudeField.setText("");
+            longitudeField.setText("");
+
+            // Clear display area
+            textArea.setText("");
+        }, ex -> {
+            if (ex instanceof IllegalArgumentException) {
+                JOptionPane.showMessageDialog(this, "⚠ " + ex.getMessage(), "Warning", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Error adding place!\n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    // Blank means no location
+    private static double parseCoordinate(String text) {
+        return text.trim().isEmpty() ? Double.NaN : Double.parseDouble(text.trim());
+    }
+
+    private void importPlaces() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV, JSONL or columnar files", "csv", "jsonl", "tbc"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        textArea.setText("⏳ Importing " + file.getName() + "…\n");
+
+        db.submit("import:" + file, () -> {
+            PlaceImporter importer = new PlaceImporter();
+            importer.setListener((imported, rejected, rate) -> SwingUtilities.invokeLater(() ->
+                    textArea.setText(String.format("⏳ Importing %s…%n%d imported, %d rejected, %.0f rows/sec%n",
+                            file.getName(), imported, rejected, rate))));
+            return importer.importFile(file);
+        }, result -> {
+            textArea.setText("✅ Import finished: " + result + "\n");
+            if (result.rejected > 0) {
+                textArea.append("⚠ Rejected rows written to " + result.rejectFile + "\n");
+            }
+        }, ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Import failed!\n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    // Incremental: only cities whose places changed since the last booklet are rendered again
+    private void makeBooklet() {
+        textArea.setText("⏳ Making the booklet…\n");
+        db.submit("booklet", () -> {
+            BookletGenerator generator = new BookletGenerator();
+            generator.setListener((done, cities, places) -> SwingUtilities.invokeLater(() ->
+                    textArea.setText(String.format("⏳ Making the booklet…%n%d of %d cities, %d places%n", done, cities, places))));
+            return generator.generate(true);
+        }, result -> {
+            textArea.setText("✅ Booklet ready: " + result + "\n📖 " + result.file.getAbsolutePath() + "\n");
+            if (Desktop.isDesktopSupported() && Desktop.getDesktop().isSupported(Desktop.Action.BROWSE)) {
+                try {
+                    Desktop.getDesktop().browse(result.file.toURI());
+                } catch (IOException e) {
+                    textArea.append("⚠ Could not open it: " + e.getMessage() + "\n");
+                }
+            }
+        }, ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Booklet failed!\n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    public static void main(String[] args) {
+        ScreenManager.launch(ScreenManager.ScreenId.BOOKLET);
+    }
+}
@@ -0,0 +1,37 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+// Tiny assertion helpers for the tests in this directory, which run with plain `java` and, apart from
+// IndexUsageTest, need no database server: build src/ and test/ together and run `java RunTests`.
+public class Check {
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static void equal(Object expected, Object actual, String what) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    // A path for a store or export that doesn't exist yet and is removed when the JVM exits
+    static Path tempFile(String prefix, String suffix) throws IOException {
+        Path file = Files.createTempFile(prefix, suffix);
+        file.toFile().deleteOnExit();
+        Files.delete(file);
+        return file;
+    }
+
+    // Points PlaceStore.shared() at a fresh embedded store; call before anything touches the shared store
+    static void useEmbeddedStore() throws IOException {
+        if (System.getProperty("store.file") == null) {
+            System.setProperty("store.type", "embedded");
+            System.setProperty("store.file", tempFile("test-places", ".log").toString());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Threads racing on one place through the same stale copy: exactly one write wins each race, every loser gets
+// a PlaceConflictException carrying the newer place, and the final version counts every write that won
+public class ContentionTest {
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 200;
+
+    static void run() throws Exception {
+        Path file = Check.tempFile("contention", ".log");
+        LogPlaceStore store = new LogPlaceStore(file, false);
+        Place start = store.insert("Hawa Mahal", "Jaipur", "Palace of winds");
+        AtomicInteger won = new AtomicInteger();
+        AtomicInteger lost = new AtomicInteger();
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Place seen = store.find(start.getId());
+                int roundWon = won.get();
+                int roundLost = lost.get();
+                List<Future<?>> workers = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    String description = "Round " + round + ", thread " + t;
+                    workers.add(pool.submit(() -> {
+                        barrier.await();
+                        try {
+                            Place updated = store.updateDescription(seen, description);
+                            Check.check(updated != null, "place disappeared");
+                            Check.equal(seen.getVersion() + 1, updated.getVersion(), "version after a winning write");
+                            won.incrementAndGet();
+                        } catch (PlaceConflictException ex) {
+                            Check.check(ex.getCurrent().getVersion() > seen.getVersion(), "conflict came back with " + ex.getCurrent());
+                            lost.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                // Any other exception, or a failed check, surfaces here
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+                Check.equal(1, won.get() - roundWon, "winners in round " + round);
+                Check.equal(THREADS - 1, lost.get() - roundLost, "conflicts in round " + round);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Check.equal(start.getVersion() + won.get(), store.find(start.getId()).getVersion(), "final version");
+        store.close();
+
+        LogPlaceStore reopened = new LogPlaceStore(file, false);
+        Check.equal(start.getVersion() + won.get(), reopened.find(start.getId()).getVersion(), "version after replay");
+        reopened.close();
+    }
+}
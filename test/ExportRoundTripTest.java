@@ -0,0 +1,66 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+// Every export format must import back to the same places, quoting and all, and columnar files keep their ids
+public class ExportRoundTripTest {
+
+    static void run() throws Exception {
+        roundTrip();
+        columnarIds();
+    }
+
+    private static void roundTrip() throws Exception {
+        PlaceStore store = PlaceStore.shared();
+        String[][] originals = {
+                {"Gateway of India", "Mumbai", "Arch on the waterfront, built 1924"},
+                {"Hawa \"Palace of Winds\" Mahal", "Jaipur", "Pink sandstone.\nFive storeys, 953 windows"},
+                {"Marine Drive", "Mumbai", "Queen's Necklace, 3.6 km — ünïcödé and a tab\there"},
+        };
+        for (PlaceExporter.Format format : PlaceExporter.Format.values()) {
+            for (String[] place : originals) {
+                store.insert(place[0], place[1], place[2]);
+            }
+            String extension = format == PlaceExporter.Format.COLUMNAR ? ColumnarPlaceFile.EXTENSION : "." + format.name().toLowerCase();
+            File file = Check.tempFile("export", extension).toFile();
+            File rejects = Check.tempFile("export", ".rejects.csv").toFile();
+            PlaceExporter.export(file, format);
+
+            long exported = store.count(null);
+            PlaceImporter.Result result = new PlaceImporter(1, 100).importFile(file, rejects);
+            Check.equal(0L, result.rejected, format + " rejected rows");
+            Check.equal(exported, result.imported, format + " imported rows");
+
+            // The copies of this round's places are the last ones imported
+            List<Place> copies = store.pageAfter(store.latest().getId() - originals.length, originals.length, null);
+            Check.equal(originals.length, copies.size(), format + " copies");
+            for (int i = 0; i < originals.length; i++) {
+                Place copy = store.find(copies.get(i).getId()); // pages leave descriptions out
+                Check.equal(originals[i][0], copy.getPlaceName(), format + " place name");
+                Check.equal(originals[i][1], copy.getCity(), format + " city");
+                Check.equal(originals[i][2], copy.getDescription(), format + " description");
+            }
+        }
+    }
+
+    // Gaps, ids going backwards and the extremes all have to survive the varint deltas
+    private static void columnarIds() throws Exception {
+        int[] ids = {1, 2, 3, 500, 70000, 4, Integer.MAX_VALUE, 0};
+        File file = Check.tempFile("ids", ColumnarPlaceFile.EXTENSION).toFile();
+        try (ColumnarPlaceFile.Writer writer = new ColumnarPlaceFile.Writer(file)) {
+            for (int id : ids) {
+                writer.write(id, "Place " + id, "Pune", null);
+            }
+        }
+        Check.check(!Files.exists(file.toPath().resolveSibling(file.getName() + ".tmp")), "temporary file left behind");
+        try (ColumnarPlaceFile.Reader reader = new ColumnarPlaceFile.Reader(file)) {
+            for (int id : ids) {
+                String[] row = reader.next();
+                Check.check(row != null, "row " + id + " missing");
+                Check.equal(id, reader.id(), "id");
+                Check.equal("Place " + id, row[0], "place name of " + id);
+            }
+            Check.check(reader.next() == null, "rows after the last one");
+        }
+    }
+}
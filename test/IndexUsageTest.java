@@ -0,0 +1,27 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+// The city facet, city page and name lookup queries must be answered from their indexes (see
+// SchemaMigrations.INDEXED_QUERIES). Needs the MySQL database from db.properties; without one the test is
+// skipped, unless -Dtest.database=true says a database is expected, in which case it fails.
+public class IndexUsageTest {
+
+    static void run() throws Exception {
+        Connection conn;
+        try {
+            conn = DatabaseConnection.getConnection();
+        } catch (SQLException e) {
+            if (Boolean.getBoolean("test.database")) {
+                throw e;
+            }
+            System.out.println("ℹ️ IndexUsageTest skipped, no database: " + e.getMessage());
+            return;
+        }
+        try (conn) {
+            SchemaMigrations.migrate(conn);
+            List<String> problems = SchemaMigrations.verifyIndexes(conn);
+            Check.check(problems.isEmpty(), "queries not using their indexes: " + problems);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// What every PlaceStore promises (inserts, edits, deletes, optimistic-locking conflicts), checked against
+// LogPlaceStore, which then has to replay its log to exactly the same places
+public class LogPlaceStoreContractTest {
+
+    static void run() throws Exception {
+        Path file = Check.tempFile("contract", ".log");
+        LogPlaceStore store = new LogPlaceStore(file, false);
+        Place kept = contract(store);
+        store.close();
+
+        LogPlaceStore reopened = new LogPlaceStore(file, false);
+        Check.equal(3, reopened.count(null), "places after replay");
+        Check.equal(Map.of("Agra", 2, "Delhi", 1), reopened.cityCounts(), "city counts after replay");
+        Place replayed = reopened.find(kept.getId());
+        Check.equal(kept.getVersion(), replayed.getVersion(), "version after replay");
+        Check.equal(kept.getDescription(), replayed.getDescription(), "description after replay");
+        Place next = reopened.insert("Lodhi Garden", "Delhi", null);
+        Check.check(next.getId() > kept.getId(), "ids are not reused after replay: " + next.getId());
+        reopened.close();
+    }
+
+    // Runs against an empty store and returns the edited place, leaving Agra with 2 places and Delhi with 1
+    static Place contract(PlaceStore store) throws SQLException {
+        Place taj = store.insert("Taj Mahal", "Agra", "Marble mausoleum");
+        Check.equal("Taj Mahal", taj.getPlaceName(), "inserted name");
+        Check.equal(taj.getDescription(), store.find(taj.getId()).getDescription(), "description as found");
+        Check.equal(taj.getId(), store.latest().getId(), "latest place");
+
+        int added = store.insertAll(Arrays.asList(
+                new String[]{"Agra Fort", "Agra", "Red sandstone fort"},
+                new String[]{"Qutub Minar", "Delhi", null},
+                new String[]{"Red Fort", "Delhi", "Mughal fort"}));
+        Check.equal(3, added, "rows inserted together");
+        Check.equal(4, store.count(null), "places");
+        Check.equal(2, store.count("Delhi"), "places in Delhi");
+        List<Place> delhi = store.pageAfter(0, 10, "Delhi");
+        Check.equal(2, delhi.size(), "Delhi page");
+        Check.check(delhi.get(0).getId() < delhi.get(1).getId(), "pages are in id order");
+        try {
+            store.insertAll(Arrays.asList(new String[]{"Jama Masjid", "Delhi", null}, new String[]{null, "Delhi", null}));
+            throw new AssertionError("a place without a name was inserted");
+        } catch (SQLException expected) {
+            Check.equal(4, store.count(null), "places after a rejected batch");
+        }
+
+        Place edited = store.updateDescription(taj, "Ivory-white marble mausoleum");
+        Check.equal(taj.getVersion() + 1, edited.getVersion(), "version after an edit");
+        Check.equal("Ivory-white marble mausoleum", store.find(taj.getId()).getDescription(), "description after an edit");
+        try {
+            store.updateDescription(taj, "Stale edit");
+            throw new AssertionError("an edit through a stale copy won");
+        } catch (PlaceConflictException ex) {
+            Check.equal(edited.getVersion(), ex.getCurrent().getVersion(), "version handed back by a conflict");
+            Check.equal(edited.getDescription(), ex.getCurrent().getDescription(), "description handed back by a conflict");
+        }
+        try {
+            store.delete(taj);
+            throw new AssertionError("a delete through a stale copy won");
+        } catch (PlaceConflictException expected) {
+            Check.check(store.find(taj.getId()) != null, "place deleted through a stale copy");
+        }
+
+        Place qutub = delhi.get(0);
+        Check.check(store.delete(qutub), "delete reported the place as already gone");
+        Check.check(store.find(qutub.getId()) == null, "deleted place still found");
+        Check.check(!store.delete(qutub), "second delete reported success");
+        Check.equal(null, store.updateDescription(qutub, "Too late"), "edit of a deleted place");
+        Check.equal(3, store.count(null), "places after a delete");
+        return edited;
+    }
+}
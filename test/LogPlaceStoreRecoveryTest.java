@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Opening a damaged store file: torn writes at the end are cut off, damage in the middle is moved aside rather
+// than deleted, a garbage length can't exhaust the heap, and a multi-row insert comes back all or nothing
+public class LogPlaceStoreRecoveryTest {
+
+    static void run() throws Exception {
+        tornTailIsCutOff();
+        garbageLengthOpens();
+        tornBatchIsDroppedWhole();
+        midFileDamageIsMovedAside();
+    }
+
+    private static void tornTailIsCutOff() throws Exception {
+        Path file = storeWith(5);
+        long intact = Files.size(file);
+        append(file, 40, 0, 0, 0, 1, 2, 3, 'P'); // length and CRC, then the crash
+        LogPlaceStore store = new LogPlaceStore(file, false);
+        Check.equal(5, store.count(null), "places after a torn write");
+        store.close();
+        Check.equal(intact, Files.size(file), "file size after a torn write");
+    }
+
+    private static void garbageLengthOpens() throws Exception {
+        Path file = storeWith(3);
+        append(file, 0x7f, 0xff, 0xff, 0xff, 0, 0, 0, 0, 1, 2, 3);
+        LogPlaceStore store = new LogPlaceStore(file, false);
+        Check.equal(3, store.count(null), "places after a garbage length");
+        store.close();
+    }
+
+    private static void tornBatchIsDroppedWhole() throws Exception {
+        Path file = storeWith(2);
+        LogPlaceStore store = new LogPlaceStore(file, false);
+        long before = Files.size(file);
+        store.insertAll(Arrays.asList(row(10), row(11), row(12)));
+        store.close();
+        // Cut into the last record of the batch, as a crash halfway through the write would
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        store = new LogPlaceStore(file, false);
+        Check.equal(2, store.count(null), "places after a torn batch");
+        store.close();
+        Check.equal(before, Files.size(file), "file size after a torn batch");
+    }
+
+    private static void midFileDamageIsMovedAside() throws Exception {
+        Path file = storeWith(10);
+        long size = Files.size(file);
+        // Flip a byte in the payload of a record near the middle
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            long at = size / 2;
+            channel.read(b, at);
+            b.put(0, (byte) (b.get(0) ^ 0x55)).rewind();
+            channel.write(b, at);
+        }
+        LogPlaceStore store = new LogPlaceStore(file, false);
+        int kept = store.count(null);
+        store.close();
+        Check.check(kept > 0 && kept < 10, "places before the damage are kept, got " + kept);
+        List<Path> aside;
+        try (Stream<Path> siblings = Files.list(file.getParent())) {
+            aside = siblings.filter(p -> p.getFileName().toString().startsWith(file.getFileName() + ".corrupt-"))
+                    .collect(Collectors.toList());
+        }
+        Check.equal(1, aside.size(), "files moved aside");
+        Check.equal(size, Files.size(file) + Files.size(aside.get(0)), "bytes kept plus bytes moved aside");
+        Files.delete(aside.get(0));
+    }
+
+    private static Path storeWith(int places) throws Exception {
+        Path file = Check.tempFile("recovery", ".log");
+        LogPlaceStore store = new LogPlaceStore(file, false);
+        for (int i = 0; i < places; i++) {
+            String[] row = row(i);
+            store.insert(row[0], row[1], row[2]);
+        }
+        store.close();
+        return file;
+    }
+
+    private static String[] row(int i) {
+        return new String[]{"Place " + i, "City " + i % 3, "Description of place " + i};
+    }
+
+    private static void append(Path file, int... bytes) throws IOException {
+        byte[] raw = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            raw[i] = (byte) bytes[i];
+        }
+        Files.write(file, raw, StandardOpenOption.APPEND);
+    }
+}
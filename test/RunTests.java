@@ -0,0 +1,31 @@
+// Runs every test in this directory, against embedded stores where a test doesn't need the database; exits with 1 if any fails
+public class RunTests {
+
+    interface Test {
+        void run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Check.useEmbeddedStore();
+        Object[][] tests = {
+                {"ExportRoundTripTest", (Test) ExportRoundTripTest::run},
+                {"LogPlaceStoreRecoveryTest", (Test) LogPlaceStoreRecoveryTest::run},
+                {"LogPlaceStoreContractTest", (Test) LogPlaceStoreContractTest::run},
+                {"IndexUsageTest", (Test) IndexUsageTest::run},
+                {"ContentionTest", (Test) ContentionTest::run},
+        };
+        int failed = 0;
+        for (Object[] test : tests) {
+            try {
+                ((Test) test[1]).run();
+                System.out.println("✅ " + test[0]);
+            } catch (Throwable e) {
+                failed++;
+                System.out.println("❌ " + test[0] + ": " + e);
+                e.printStackTrace();
+            }
+        }
+        System.out.println(failed == 0 ? "✅ All " + tests.length + " tests passed" : "❌ " + failed + " of " + tests.length + " tests failed");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}